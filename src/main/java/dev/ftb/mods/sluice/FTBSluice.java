@@ -3,15 +3,19 @@ package dev.ftb.mods.sluice;
 import dev.ftb.mods.sluice.block.SluiceBlockEntities;
 import dev.ftb.mods.sluice.block.SluiceBlocks;
 import dev.ftb.mods.sluice.block.sluice.SluiceBlockContainer;
+import dev.ftb.mods.sluice.block.sluice.SluiceManager;
 import dev.ftb.mods.sluice.integration.TheOneProbeProvider;
 import dev.ftb.mods.sluice.item.SluiceModItems;
 import dev.ftb.mods.sluice.loot.HammerModifier;
+import dev.ftb.mods.sluice.net.SluiceNet;
 import dev.ftb.mods.sluice.recipe.FTBSluiceRecipes;
 import dev.ftb.mods.sluice.util.RecipeReloader;
+import dev.ftb.mods.sluice.util.TickScheduler;
 import net.minecraft.world.inventory.MenuType;
 import net.minecraft.world.item.CreativeModeTab;
 import net.minecraft.world.item.ItemStack;
 import net.minecraft.world.item.crafting.RecipeManager;
+import net.minecraft.world.level.Level;
 import net.minecraftforge.api.distmarker.Dist;
 import net.minecraftforge.api.distmarker.OnlyIn;
 import net.minecraftforge.client.event.RecipesUpdatedEvent;
@@ -19,6 +23,9 @@ import net.minecraftforge.common.MinecraftForge;
 import net.minecraftforge.common.extensions.IForgeContainerType;
 import net.minecraftforge.common.loot.GlobalLootModifierSerializer;
 import net.minecraftforge.event.AddReloadListenerEvent;
+import net.minecraftforge.event.TickEvent;
+import net.minecraftforge.event.world.ChunkEvent;
+import net.minecraftforge.event.world.WorldEvent;
 import net.minecraftforge.eventbus.api.IEventBus;
 import net.minecraftforge.eventbus.api.SubscribeEvent;
 import net.minecraftforge.fml.InterModComms;
@@ -29,6 +36,7 @@ import net.minecraftforge.fml.common.Mod;
 import net.minecraftforge.fml.config.ModConfig;
 import net.minecraftforge.fml.event.lifecycle.FMLClientSetupEvent;
 import net.minecraftforge.fml.event.lifecycle.InterModEnqueueEvent;
+import net.minecraftforge.fml.event.server.FMLServerStoppingEvent;
 import net.minecraftforge.fml.javafmlmod.FMLJavaModLoadingContext;
 import net.minecraftforge.registries.DeferredRegister;
 import net.minecraftforge.registries.ForgeRegistries;
@@ -67,7 +75,11 @@ public class FTBSluice {
         FTBSluiceRecipes.REGISTRY.register(bus);
         LOOT_MODIFIERS.register(bus);
 
+        SluiceNet.init();
+
         bus.addListener(this::clientSetup);
+        bus.addListener((ModConfig.Loading event) -> SluiceConfig.refresh(event.getConfig()));
+        bus.addListener((ModConfig.Reloading event) -> SluiceConfig.refresh(event.getConfig()));
         bus.addListener(this::sendIMC);
 
         MinecraftForge.EVENT_BUS.register(this);
@@ -82,10 +94,40 @@ public class FTBSluice {
         event.addListener(new RecipeReloader(event.getDataPackRegistries()));
     }
 
+    @SubscribeEvent
+    public void worldTick(TickEvent.WorldTickEvent event) {
+        if (event.phase == TickEvent.Phase.END && !event.world.isClientSide()) {
+            SluiceManager.tick(event.world);
+            TickScheduler.tick(event.world);
+        }
+    }
+
+    @SubscribeEvent
+    public void worldUnload(WorldEvent.Unload event) {
+        if (event.getWorld() instanceof Level) {
+            SluiceManager.unload((Level) event.getWorld());
+            TickScheduler.unload((Level) event.getWorld());
+        }
+    }
+
+    @SubscribeEvent
+    public void chunkUnload(ChunkEvent.Unload event) {
+        // Fired right before the chunk is saved, so pending marks still make it in
+        if (event.getWorld() instanceof Level && !event.getWorld().isClientSide()) {
+            SluiceManager.chunkUnloaded((Level) event.getWorld(), event.getChunk());
+        }
+    }
+
+    @SubscribeEvent
+    public void serverStopping(FMLServerStoppingEvent event) {
+        // The final save only writes chunks that are already marked
+        SluiceManager.saveAll();
+    }
+
     @SubscribeEvent
     public void recipesSetup(RecipesUpdatedEvent event) {
         RecipeManager recipeManager = event.getRecipeManager();
-        FTBSluiceRecipes.refreshCaches(recipeManager);
+        FTBSluiceRecipes.refreshCaches(recipeManager, true);
     }
 
     public void sendIMC(InterModEnqueueEvent event) {
@@ -1,15 +1,21 @@
 package dev.ftb.mods.sluice;
 
 import dev.ftb.mods.sluice.block.SluiceBlockEntities;
+import dev.ftb.mods.sluice.block.PredictedProgress;
 import dev.ftb.mods.sluice.block.SluiceBlocks;
 import dev.ftb.mods.sluice.block.pump.PumpBlockEntity;
 import dev.ftb.mods.sluice.block.pump.PumpBlockEntityRender;
+import dev.ftb.mods.sluice.block.sluice.SluiceBlockEntity;
 import dev.ftb.mods.sluice.block.sluice.SluiceScreen;
 import dev.ftb.mods.sluice.block.sluice.SluiceRenderer;
+import dev.ftb.mods.sluice.net.SyncProgressPacket;
+import dev.ftb.mods.sluice.net.SyncSluicePacket;
+import net.minecraft.client.Minecraft;
 import net.minecraft.client.gui.screens.MenuScreens;
 import net.minecraft.client.renderer.ItemBlockRenderTypes;
 import net.minecraft.client.renderer.RenderType;
 import net.minecraft.world.level.block.Blocks;
+import net.minecraft.world.level.block.entity.BlockEntity;
 import net.minecraftforge.fml.client.registry.ClientRegistry;
 
 public class SluiceClient {
@@ -19,6 +25,7 @@ public class SluiceClient {
         ClientRegistry.bindTileEntityRenderer(SluiceBlockEntities.DIAMOND_SLUICE.get(), SluiceRenderer::new);
         ClientRegistry.bindTileEntityRenderer(SluiceBlockEntities.NETHERITE_SLUICE.get(), SluiceRenderer::new);
         ClientRegistry.bindTileEntityRenderer(SluiceBlockEntities.EMPOWERED_SLUICE.get(), SluiceRenderer::new);
+        ClientRegistry.bindTileEntityRenderer(SluiceBlockEntities.CONTROLLER_SLUICE.get(), SluiceRenderer::new);
 
         ClientRegistry.bindTileEntityRenderer(SluiceBlockEntities.PUMP.get(), PumpBlockEntityRender::new);
 
@@ -33,4 +40,26 @@ public class SluiceClient {
         ItemBlockRenderTypes.setRenderLayer(SluiceBlocks.DIAMOND_AUTO_HAMMER.get(), RenderType.cutout());
         ItemBlockRenderTypes.setRenderLayer(SluiceBlocks.NETHERITE_AUTO_HAMMER.get(), RenderType.cutout());
     }
+
+    public static void handleSluiceSync(SyncSluicePacket packet) {
+        if (Minecraft.getInstance().level == null) {
+            return;
+        }
+
+        BlockEntity blockEntity = Minecraft.getInstance().level.getBlockEntity(packet.pos);
+        if (blockEntity instanceof SluiceBlockEntity) {
+            ((SluiceBlockEntity) blockEntity).handleSync(packet);
+        }
+    }
+
+    public static void handleProgressSync(SyncProgressPacket packet) {
+        if (Minecraft.getInstance().level == null) {
+            return;
+        }
+
+        BlockEntity blockEntity = Minecraft.getInstance().level.getBlockEntity(packet.pos);
+        if (blockEntity instanceof PredictedProgress) {
+            ((PredictedProgress) blockEntity).predictCycle(packet.startTime, packet.duration);
+        }
+    }
 }
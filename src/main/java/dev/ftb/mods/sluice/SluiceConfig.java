@@ -1,6 +1,8 @@
 package dev.ftb.mods.sluice;
 
+import dev.ftb.mods.sluice.item.Upgrades;
 import net.minecraftforge.common.ForgeConfigSpec;
+import net.minecraftforge.fml.config.ModConfig;
 
 public class SluiceConfig {
     public static final ForgeConfigSpec.Builder COMMON_BUILDER = new ForgeConfigSpec.Builder();
@@ -14,37 +16,106 @@ public class SluiceConfig {
         COMMON_CONFIG = COMMON_BUILDER.build();
     }
 
+    /**
+     * Re-reads every value into the snapshots. Called when the config loads or reloads, so nothing else ever has
+     * to go through the spec. The general category goes first as the sluice power cost tables depend on it.
+     */
+    public static void refresh(ModConfig config) {
+        if (config.getSpec() != COMMON_CONFIG) {
+            return;
+        }
+
+        GENERAL.refresh();
+        SLUICES.OAK.refresh();
+        SLUICES.IRON.refresh();
+        SLUICES.DIAMOND.refresh();
+        SLUICES.NETHERITE.refresh();
+        SLUICES.EMPOWERED.refresh();
+        SLUICES.CONTROLLER.refresh();
+        HAMMERS.refresh();
+    }
+
     public static class CategoryGeneral {
         public final ForgeConfigSpec.IntValue maxUpgradeStackSize;
         public final ForgeConfigSpec.DoubleValue exponentialCostBaseN;
+        public final ForgeConfigSpec.IntValue maxOfflineTicks;
+        public final ForgeConfigSpec.IntValue maxOfflineCycles;
+        public final ForgeConfigSpec.IntValue saveInterval;
+
+        // Shared by the spec and the snapshot used until the config loads
+        private static final int DEFAULT_MAX_UPGRADE_STACK_SIZE = 18;
+        private static final double DEFAULT_EXPONENTIAL_COST_BASE_N = 1.35D;
+        private static final int DEFAULT_MAX_OFFLINE_TICKS = 72000;
+        private static final int DEFAULT_MAX_OFFLINE_CYCLES = 1024;
+        private static final int DEFAULT_SAVE_INTERVAL = 6000;
+
+        private volatile Snapshot snapshot = new Snapshot(DEFAULT_MAX_UPGRADE_STACK_SIZE, DEFAULT_EXPONENTIAL_COST_BASE_N, DEFAULT_MAX_OFFLINE_TICKS, DEFAULT_MAX_OFFLINE_CYCLES, DEFAULT_SAVE_INTERVAL);
 
         public CategoryGeneral() {
             COMMON_BUILDER.push("general");
 
             this.maxUpgradeStackSize = COMMON_BUILDER.comment(
                     "Allows you to increase the amount of upgrades that can be put within a single stack. This is not something you should change as it can mess with math but if you opt too, good luck.")
-                    .defineInRange("Max upgrade stack size", 18, 1, 64);
+                    .defineInRange("Max upgrade stack size", DEFAULT_MAX_UPGRADE_STACK_SIZE, 1, 64);
 
             this.exponentialCostBaseN = COMMON_BUILDER.comment(
                     "Exponential cost N amount. We start with 1.35 as it's a good max number at around 10M RF per operation")
-                    .defineInRange("Exponential cost base N value", 1.35D, 1D, 2D);
+                    .defineInRange("Exponential cost base N value", DEFAULT_EXPONENTIAL_COST_BASE_N, 1D, 2D);
+
+            this.maxOfflineTicks = COMMON_BUILDER.comment(
+                    "How many ticks of an unloaded chunk a sluice catches up on when it loads again. Set to 0 to disable catching up")
+                    .defineInRange("Max offline ticks", DEFAULT_MAX_OFFLINE_TICKS, 0, Integer.MAX_VALUE);
+
+            this.maxOfflineCycles = COMMON_BUILDER.comment(
+                    "The most cycles a sluice can catch up on in one go when its chunk loads again")
+                    .defineInRange("Max offline cycles", DEFAULT_MAX_OFFLINE_CYCLES, 0, Integer.MAX_VALUE);
+
+            this.saveInterval = COMMON_BUILDER.comment(
+                    "How many ticks a sluice waits before marking its chunk for saving after its progress, fluid or power changed. The default matches the world autosave so a busy sluice's chunk is rewritten once per autosave. Pending changes are still saved when the chunk unloads or the server stops, but up to this many ticks of them can be lost if the server crashes. Lower values trade more chunk saves for less loss on a crash")
+                    .defineInRange("Save interval", DEFAULT_SAVE_INTERVAL, 1, 72000);
 
             COMMON_BUILDER.pop();
         }
+
+        public Snapshot get() {
+            return this.snapshot;
+        }
+
+        private void refresh() {
+            this.snapshot = new Snapshot(this.maxUpgradeStackSize.get(), this.exponentialCostBaseN.get(), this.maxOfflineTicks.get(), this.maxOfflineCycles.get(), this.saveInterval.get());
+        }
+
+        public static final class Snapshot {
+            public final int maxUpgradeStackSize;
+            public final double exponentialCostBaseN;
+            public final int maxOfflineTicks;
+            public final int maxOfflineCycles;
+            public final int saveInterval;
+
+            private Snapshot(int maxUpgradeStackSize, double exponentialCostBaseN, int maxOfflineTicks, int maxOfflineCycles, int saveInterval) {
+                this.maxUpgradeStackSize = maxUpgradeStackSize;
+                this.exponentialCostBaseN = exponentialCostBaseN;
+                this.maxOfflineTicks = maxOfflineTicks;
+                this.maxOfflineCycles = maxOfflineCycles;
+                this.saveInterval = saveInterval;
+            }
+        }
     }
 
     public static class CategorySluices {
 
-        public final CategorySluice OAK, IRON, DIAMOND, NETHERITE, EMPOWERED;
+        public final CategorySluice OAK, IRON, DIAMOND, NETHERITE, EMPOWERED, CONTROLLER;
 
         public CategorySluices() {
             COMMON_BUILDER.push("sluices");
 
-            OAK = new CategorySluice("oak", 1, 1, 12000, false, false, false, 0);
-            IRON = new CategorySluice("iron", .8, .6, 12000, true, false, false, 0);
-            DIAMOND = new CategorySluice("diamond", .6, .75, 12000, true, true, false, 0);
-            NETHERITE = new CategorySluice("netherite", .4, .5, 12000, true, true, true, 40);
-            EMPOWERED = new CategorySluice("empowered", .2, .2, 25000, true, true, true, 80);
+            OAK = new CategorySluice("oak", 1, 1, 12000, false, false, false, 0, 1, 1);
+            IRON = new CategorySluice("iron", .8, .6, 12000, true, false, false, 0, 1, 1);
+            DIAMOND = new CategorySluice("diamond", .6, .75, 12000, true, true, false, 0, 1, 1);
+            NETHERITE = new CategorySluice("netherite", .4, .5, 12000, true, true, true, 40, 16, 4);
+            EMPOWERED = new CategorySluice("empowered", .2, .2, 25000, true, true, true, 80, 64, 8);
+            // The controller stands in for a row of empowered sluices, its batch size is how many it replaces
+            CONTROLLER = new CategorySluice("controller", .2, .2, 100000, true, true, true, 80, 64, 16);
 
             COMMON_BUILDER.pop();
         }
@@ -59,8 +130,14 @@ public class SluiceConfig {
         public final ForgeConfigSpec.BooleanValue allowsTank;
         public final ForgeConfigSpec.BooleanValue upgradeable;
         public ForgeConfigSpec.IntValue costPerUse;
+        public final ForgeConfigSpec.IntValue inputQueueSize;
+        public final ForgeConfigSpec.IntValue batchSize;
+
+        private volatile Snapshot snapshot;
+
+        public CategorySluice(String name, double timeMod, double fluidMod, int tankCap, boolean allowsIO, boolean allowsTank, boolean upgradeable, int energyCost, int inputQueueSize, int batchSize) {
+            this.snapshot = new Snapshot(timeMod, fluidMod, tankCap, allowsIO, allowsTank, upgradeable, energyCost, inputQueueSize, batchSize, GENERAL.get().exponentialCostBaseN);
 
-        public CategorySluice(String name, double timeMod, double fluidMod, int tankCap, boolean allowsIO, boolean allowsTank, boolean upgradeable, int energyCost) {
             COMMON_BUILDER.push(name);
 
             this.timeMod = COMMON_BUILDER.comment(
@@ -87,39 +164,135 @@ public class SluiceConfig {
             this.costPerUse = COMMON_BUILDER.comment("FE cost per use")
                     .defineInRange("fe cost per use", energyCost, 0, Integer.MAX_VALUE);
 
+            this.inputQueueSize = COMMON_BUILDER.comment("How many input items this sluice can hold at once. Each cycle takes up to this tier's batch size of them")
+                    .defineInRange("input queue size", inputQueueSize, 1, 64);
+
+            this.batchSize = COMMON_BUILDER.comment("How many queued inputs this sluice processes together in one cycle. Fluid and FE use scale with the batch")
+                    .defineInRange("batch size", batchSize, 1, 64);
+
             addOtherValues();
 
             COMMON_BUILDER.pop();
         }
 
         public void addOtherValues() {}
+
+        public Snapshot get() {
+            return this.snapshot;
+        }
+
+        private void refresh() {
+            this.snapshot = new Snapshot(this.timeMod.get(), this.fluidMod.get(), this.tankCap.get(), this.allowsIO.get(), this.allowsTank.get(), this.upgradeable.get(), this.costPerUse.get(), this.inputQueueSize.get(), this.batchSize.get(), GENERAL.get().exponentialCostBaseN);
+        }
+
+        public static final class Snapshot {
+            public final double timeMod;
+            public final double fluidMod;
+            public final int tankCap;
+            public final boolean allowsIO;
+            public final boolean allowsTank;
+            public final boolean upgradeable;
+            public final int costPerUse;
+            public final int inputQueueSize;
+            public final int batchSize;
+
+            // Total upgrade count -> FE cost per use
+            private final int[] powerCosts;
+
+            private Snapshot(double timeMod, double fluidMod, int tankCap, boolean allowsIO, boolean allowsTank, boolean upgradeable, int costPerUse, int inputQueueSize, int batchSize, double costBase) {
+                this.timeMod = timeMod;
+                this.fluidMod = fluidMod;
+                this.tankCap = tankCap;
+                this.allowsIO = allowsIO;
+                this.allowsTank = allowsTank;
+                this.upgradeable = upgradeable;
+                this.costPerUse = costPerUse;
+                this.inputQueueSize = inputQueueSize;
+                this.batchSize = batchSize;
+
+                this.powerCosts = new int[Upgrades.MAX_COUNT * Upgrades.values().length + 1];
+                for (int i = 0; i < this.powerCosts.length; i++) {
+                    this.powerCosts[i] = (int) Math.min(Math.pow(costBase, i) * costPerUse, Integer.MAX_VALUE);
+                }
+            }
+
+            public int powerCost(int upgrades) {
+                return this.powerCosts[Math.min(Math.max(upgrades, 0), this.powerCosts.length - 1)];
+            }
+        }
     }
     public static class CategoryHammers {
         public final ForgeConfigSpec.IntValue speedIron;
         public final ForgeConfigSpec.IntValue speedGold;
         public final ForgeConfigSpec.IntValue speedDiamond;
         public final ForgeConfigSpec.IntValue speedNetherite;
+        public final ForgeConfigSpec.IntValue pullScanBudget;
+        public final ForgeConfigSpec.IntValue exportBudget;
+
+        // Shared by the spec and the snapshot used until the config loads
+        private static final int DEFAULT_SPEED_IRON = 50;
+        private static final int DEFAULT_SPEED_GOLD = 40;
+        private static final int DEFAULT_SPEED_DIAMOND = 30;
+        private static final int DEFAULT_SPEED_NETHERITE = 15;
+        private static final int DEFAULT_PULL_SCAN_BUDGET = 64;
+        private static final int DEFAULT_EXPORT_BUDGET = 256;
+
+        private volatile Snapshot snapshot = new Snapshot(DEFAULT_SPEED_IRON, DEFAULT_SPEED_GOLD, DEFAULT_SPEED_DIAMOND, DEFAULT_SPEED_NETHERITE, DEFAULT_PULL_SCAN_BUDGET, DEFAULT_EXPORT_BUDGET);
 
         private CategoryHammers() {
             COMMON_BUILDER.push("hammers");
 
             this.speedIron = COMMON_BUILDER
                     .comment("Speed of the iron auto-hammer as ticks taken to process the block")
-                    .defineInRange("ironSpeed", 50, 1, 100000);
+                    .defineInRange("ironSpeed", DEFAULT_SPEED_IRON, 1, 100000);
 
             this.speedGold = COMMON_BUILDER
                     .comment("Speed of the gold auto-hammer as ticks taken to process the block")
-                    .defineInRange("goldSpeed", 40, 1, 100000);
+                    .defineInRange("goldSpeed", DEFAULT_SPEED_GOLD, 1, 100000);
 
             this.speedDiamond = COMMON_BUILDER
                     .comment("Speed of the diamond auto-hammer as ticks taken to process the block")
-                    .defineInRange("diamondSpeed", 30, 1, 100000);
+                    .defineInRange("diamondSpeed", DEFAULT_SPEED_DIAMOND, 1, 100000);
 
             this.speedNetherite = COMMON_BUILDER.comment(
                     "Speed of the netherite auto-hammer as ticks taken to process the block")
-                    .defineInRange("netheriteSpeed", 15, 1, 100000);
+                    .defineInRange("netheriteSpeed", DEFAULT_SPEED_NETHERITE, 1, 100000);
+
+            this.pullScanBudget = COMMON_BUILDER.comment(
+                    "How many slots of the inventory on its input side an auto-hammer looks through per tick when pulling in blocks")
+                    .defineInRange("pullScanBudget", DEFAULT_PULL_SCAN_BUDGET, 1, 100000);
+
+            this.exportBudget = COMMON_BUILDER.comment(
+                    "How many items an auto-hammer can push out of its output into the inventory on its output side per tick")
+                    .defineInRange("exportBudget", DEFAULT_EXPORT_BUDGET, 1, 100000);
 
             COMMON_BUILDER.pop();
         }
+
+        public Snapshot get() {
+            return this.snapshot;
+        }
+
+        private void refresh() {
+            this.snapshot = new Snapshot(this.speedIron.get(), this.speedGold.get(), this.speedDiamond.get(), this.speedNetherite.get(), this.pullScanBudget.get(), this.exportBudget.get());
+        }
+
+        public static final class Snapshot {
+            public final int speedIron;
+            public final int speedGold;
+            public final int speedDiamond;
+            public final int speedNetherite;
+            public final int pullScanBudget;
+            public final int exportBudget;
+
+            private Snapshot(int speedIron, int speedGold, int speedDiamond, int speedNetherite, int pullScanBudget, int exportBudget) {
+                this.speedIron = speedIron;
+                this.speedGold = speedGold;
+                this.speedDiamond = speedDiamond;
+                this.speedNetherite = speedNetherite;
+                this.pullScanBudget = pullScanBudget;
+                this.exportBudget = exportBudget;
+            }
+        }
     }
 }
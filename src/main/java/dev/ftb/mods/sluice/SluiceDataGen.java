@@ -133,6 +133,7 @@ public class SluiceDataGen {
             this.add("ftbsluice.tooltip.sluice_diamond", "Significantly faster than the iron one, but also a bit less fluid-efficient.");
             this.add("ftbsluice.tooltip.sluice_netherite", "Forged from Netherite, this sluice proves itself to be both efficient and modular.");
             this.add("ftbsluice.tooltip.sluice_empowered", "A lot like the netherite sluice but quicker, holds more fluid and can accept the blazing mesh!");
+            this.add("ftbsluice.tooltip.sluice_controller", "Does the work of a whole row of empowered sluices from a single block, sharing one tank, power buffer and output.");
 
             this.add("ftbsluice.tooltip.upgrade_fortune", "Increases drop chance by 3% per upgrade");
             this.add("ftbsluice.tooltip.upgrade_speed", "Increases the speed of the sluice by 5% per upgrade");
@@ -184,7 +185,7 @@ public class SluiceDataGen {
 
                     for (MeshType type : MeshType.REAL_VALUES) {
                         // Don't create models for the blazing mesh on non-empowered sluices
-                        if (p.getKey() != SluiceBlocks.EMPOWERED_SLUICE && type == MeshType.BLAZING) {
+                        if (p.getKey() != SluiceBlocks.EMPOWERED_SLUICE && p.getKey() != SluiceBlocks.CONTROLLER_SLUICE && type == MeshType.BLAZING) {
                             continue;
                         }
 
@@ -296,7 +297,8 @@ public class SluiceDataGen {
                     SluiceBlocks.IRON_SLUICE.get(),
                     SluiceBlocks.DIAMOND_SLUICE.get(),
                     SluiceBlocks.NETHERITE_SLUICE.get(),
-                    SluiceBlocks.EMPOWERED_SLUICE.get()
+                    SluiceBlocks.EMPOWERED_SLUICE.get(),
+                    SluiceBlocks.CONTROLLER_SLUICE.get()
             );
 
             this.tag(SluiceTags.Blocks.AUTO_HAMMERS).add(
@@ -441,6 +443,16 @@ public class SluiceDataGen {
                     .define('A', Blocks.GOLD_BLOCK)
                     .save(consumer);
 
+            ShapedRecipeBuilder.shaped(SluiceModItems.CONTROLLER_SLUICE.get())
+                    .unlockedBy("has_item", has(SluiceModItems.EMPOWERED_SLUICE.get()))
+                    .pattern("SSS")
+                    .pattern("NXN")
+                    .pattern("SSS")
+                    .define('S', SluiceModItems.EMPOWERED_SLUICE.get())
+                    .define('N', Blocks.NETHERITE_BLOCK)
+                    .define('X', Items.NETHER_STAR)
+                    .save(consumer);
+
             UpgradeRecipeBuilder.smithing(Ingredient.of(SluiceModItems.DIAMOND_SLUICE.get()), Ingredient.of(Items.NETHERITE_INGOT), SluiceModItems.NETHERITE_SLUICE.get())
                     .unlocks("has_item", has(Items.NETHERITE_INGOT))
                     .save(consumer, FTBSluice.MOD_ID + ":netherite_sluice");
@@ -0,0 +1,13 @@
+package dev.ftb.mods.sluice.block;
+
+/**
+ * Block entities whose processing advances by exactly one step per tick. The server only tells the client
+ * when a cycle starts and how long it is, and the client works out the progress from the game time.
+ */
+public interface PredictedProgress {
+    /**
+     * @param startTime the game time the cycle started at
+     * @param duration  how many ticks the cycle takes, or a negative number when nothing is being processed
+     */
+    void predictCycle(long startTime, int duration);
+}
@@ -35,6 +35,7 @@ public class SluiceBlocks {
     public static final RegistryObject<Block> DIAMOND_SLUICE = REGISTRY.register("diamond_sluice", () -> new SluiceBlock(SluiceProperties.DIAMOND));
     public static final RegistryObject<Block> NETHERITE_SLUICE = REGISTRY.register("netherite_sluice", () -> new SluiceBlock(SluiceProperties.NETHERITE));
     public static final RegistryObject<Block> EMPOWERED_SLUICE = REGISTRY.register("empowered_sluice", () -> new SluiceBlock(SluiceProperties.EMPOWERED));
+    public static final RegistryObject<Block> CONTROLLER_SLUICE = REGISTRY.register("controller_sluice", () -> new SluiceBlock(SluiceProperties.CONTROLLER));
 
     public static final RegistryObject<Block> IRON_AUTO_HAMMER = REGISTRY.register("iron_auto_hammer", () -> new AutoHammerBlock(SluiceModItems.IRON_HAMMER, AutoHammerProperties.IRON));
     public static final RegistryObject<Block> GOLD_AUTO_HAMMER = REGISTRY.register("gold_auto_hammer", () -> new AutoHammerBlock(SluiceModItems.GOLD_HAMMER, AutoHammerProperties.GOLD));
@@ -57,6 +58,7 @@ public class SluiceBlocks {
             Pair.of(IRON_SLUICE, "iron"),
             Pair.of(DIAMOND_SLUICE, "diamond"),
             Pair.of(NETHERITE_SLUICE, "netherite"),
-            Pair.of(EMPOWERED_SLUICE, "empowered")
+            Pair.of(EMPOWERED_SLUICE, "empowered"),
+            Pair.of(CONTROLLER_SLUICE, "controller")
     );
 }
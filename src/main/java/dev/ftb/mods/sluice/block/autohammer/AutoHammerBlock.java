@@ -12,6 +12,7 @@ import net.minecraft.world.item.ItemStack;
 import net.minecraft.world.item.context.BlockPlaceContext;
 import net.minecraft.world.level.BlockGetter;
 import net.minecraft.world.level.Level;
+import net.minecraft.world.level.LevelReader;
 import net.minecraft.world.level.block.Block;
 import net.minecraft.world.level.block.entity.BlockEntity;
 import net.minecraft.world.level.block.state.BlockState;
@@ -108,6 +109,35 @@ public class AutoHammerBlock extends Block {
         }
     }
 
+    @Override
+    @Deprecated
+    public void neighborChanged(BlockState state, Level world, BlockPos pos, Block block, BlockPos fromPos, boolean isMoving) {
+        super.neighborChanged(state, world, pos, block, fromPos, isMoving);
+
+        if (!world.isClientSide()) {
+            BlockEntity blockEntity = world.getBlockEntity(pos);
+            if (blockEntity instanceof AutoHammerBlockEntity) {
+                ((AutoHammerBlockEntity) blockEntity).invalidateNeighbours();
+            }
+        }
+    }
+
+    /**
+     * Forge calls this when a neighbouring block entity's contents change, which is how we hear about the
+     * inventories we pull from and push into filling up or draining.
+     */
+    @Override
+    public void onNeighborChange(BlockState state, LevelReader world, BlockPos pos, BlockPos neighbor) {
+        super.onNeighborChange(state, world, pos, neighbor);
+
+        if (!world.isClientSide()) {
+            BlockEntity blockEntity = world.getBlockEntity(pos);
+            if (blockEntity instanceof AutoHammerBlockEntity) {
+                ((AutoHammerBlockEntity) blockEntity).neighbourContentsChanged(neighbor);
+            }
+        }
+    }
+
     @Nullable
     @Override
     public BlockEntity createTileEntity(BlockState state, BlockGetter world) {
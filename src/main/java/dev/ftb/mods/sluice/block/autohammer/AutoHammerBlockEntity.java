@@ -1,9 +1,16 @@
 package dev.ftb.mods.sluice.block.autohammer;
 
+import dev.ftb.mods.sluice.SluiceConfig;
+import dev.ftb.mods.sluice.block.PredictedProgress;
 import dev.ftb.mods.sluice.block.SluiceBlockEntities;
+import dev.ftb.mods.sluice.net.SluiceNet;
+import dev.ftb.mods.sluice.net.SyncProgressPacket;
 import dev.ftb.mods.sluice.recipe.FTBSluiceRecipes;
+import dev.ftb.mods.sluice.util.TickScheduler;
+import net.minecraft.core.BlockPos;
 import net.minecraft.core.Direction;
 import net.minecraft.nbt.CompoundTag;
+import net.minecraft.util.Mth;
 import net.minecraft.world.item.ItemStack;
 import net.minecraft.world.level.block.Block;
 import net.minecraft.world.level.block.entity.BlockEntity;
@@ -13,6 +20,7 @@ import net.minecraft.world.level.block.state.BlockState;
 import net.minecraft.world.level.block.state.properties.BlockStateProperties;
 import net.minecraftforge.common.capabilities.Capability;
 import net.minecraftforge.common.util.LazyOptional;
+import net.minecraftforge.fml.network.PacketDistributor;
 import net.minecraftforge.items.CapabilityItemHandler;
 import net.minecraftforge.items.IItemHandler;
 import net.minecraftforge.items.ItemHandlerHelper;
@@ -21,9 +29,11 @@ import net.minecraftforge.items.wrapper.EmptyHandler;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.util.EnumMap;
 import java.util.List;
+import java.util.Map;
 
-public class AutoHammerBlockEntity extends BlockEntity implements TickableBlockEntity {
+public class AutoHammerBlockEntity extends BlockEntity implements TickableBlockEntity, PredictedProgress {
     private static final int[][] IO_DIRECTIONAL_MATRIX = new int[][] {
             {4, 5}, // 2 north -> input[west] -> output[east]
             {5, 4}, // 3 south -> input[east] -> output[west]
@@ -36,12 +46,11 @@ public class AutoHammerBlockEntity extends BlockEntity implements TickableBlockE
         public boolean isItemValid(int slot, @NotNull ItemStack stack) {
             AutoHammerProperties props = AutoHammerBlockEntity.this.getProps();
 
-            ItemStack hammerStack = new ItemStack(props.getHammerItem().get());
             Block blockOfInput = Block.byItem(stack.getItem());
-            boolean correctToolForDrops = hammerStack.getItem().isCorrectToolForDrops(blockOfInput.defaultBlockState());
+            boolean correctToolForDrops = props.getHammerItem().get().isCorrectToolForDrops(blockOfInput.defaultBlockState());
 
             if (correctToolForDrops) {
-                return FTBSluiceRecipes.hammerable(blockOfInput.defaultBlockState());
+                return FTBSluiceRecipes.hammerable(AutoHammerBlockEntity.this.level, blockOfInput.defaultBlockState());
             }
 
             return false;
@@ -50,6 +59,12 @@ public class AutoHammerBlockEntity extends BlockEntity implements TickableBlockE
         @Override
         protected void onContentsChanged(int slot) {
             AutoHammerBlockEntity.this.setChanged();
+            AutoHammerBlockEntity.this.wake();
+
+            // Ran dry, go looking for more straight away
+            if (getStackInSlot(slot).isEmpty()) {
+                AutoHammerBlockEntity.this.resetPulling();
+            }
         }
     };
 
@@ -60,9 +75,48 @@ public class AutoHammerBlockEntity extends BlockEntity implements TickableBlockE
 
     private int progress = 0;
     private int maxProgress = 0;
-    private int timeOut = 0;
     private boolean processing = false;
     private ItemStack heldItem = ItemStack.EMPTY;
+    // Client only, the game time the current hammer cycle started at
+    private long cycleStart;
+
+    // Resolved inventories on the input and output sides, see getExternalInventory
+    private final Map<Direction, LazyOptional<IItemHandler>> neighbourInventories = new EnumMap<>(Direction.class);
+    // The optional on each side that already has our invalidation listener, kept across neighbour updates so a
+    // neighbour that hands out the same optional every time doesn't collect another listener on every lookup
+    private final Map<Direction, LazyOptional<IItemHandler>> subscribedInventories = new EnumMap<>(Direction.class);
+
+    // Longest wait between checks on the neighbouring inventories while asleep, see sleep
+    private static final int IDLE_BACKOFF_MAX = 40;
+
+    // How long the hammer has to want the other ACTIVE state before the block state follows
+    private static final int ACTIVE_STABLE_TICKS = 20;
+
+    // Game time the ACTIVE state stopped matching what the hammer is doing, -1 while it matches
+    private long activeMismatchSince = -1;
+    // The facing the pull state below belongs to, see clearCache
+    private Direction pullFacing;
+
+    private boolean sleeping = false;
+    private int idleDelay = 0;
+    private long wakeAt = 0;
+
+    // Longest wait before trying to export again after an attempt that moved nothing
+    private static final int EXPORT_BACKOFF_MAX = 40;
+
+    private int exportDelay = 0;
+    private long nextExport = 0;
+
+    // Longest wait between passes over the input side inventory that found nothing to pull
+    private static final int PULL_BACKOFF_MAX = 40;
+
+    // Where the next pull picks up scanning the input side inventory, see pullInputs
+    private int pullCursor = 0;
+    private boolean pulledThisPass = false;
+    private int pullDelay = 0;
+    private long nextPull = 0;
+    // Source slot -> the stack that was last found there and can't be hammered by us, null if unknown
+    private ItemStack[] rejectedInputs = new ItemStack[0];
 
     public AutoHammerBlockEntity(BlockEntityType<?> blockEntityType) {
         super(blockEntityType);
@@ -74,45 +128,36 @@ public class AutoHammerBlockEntity extends BlockEntity implements TickableBlockE
             return;
         }
 
-        if (timeOut > 0) {
-            timeOut--;
-            return;
-        }
+        sleeping = false;
 
         // By default, lets try and insert and export items in and out of the internal buffers
         pushPullInventories();
 
-        BlockState blockState = this.level.getBlockState(this.worldPosition);
-
-        boolean isActive = blockState.getValue(AutoHammerBlock.ACTIVE);
-        boolean shouldBeActive = inputHasItemsAndOutputIsClear();
-        if (shouldBeActive && !isActive) {
-            this.level.setBlock(this.worldPosition, blockState.setValue(AutoHammerBlock.ACTIVE, true), 3);
-        } else if(!shouldBeActive && isActive) {
-            this.level.setBlock(this.worldPosition, blockState.setValue(AutoHammerBlock.ACTIVE, false), 3);
-        }
+        updateActiveState();
 
         if (!processing) {
             ItemStack inputStack = inputInventory.getStackInSlot(0);
 
             if (!inputStack.isEmpty()) {
-                // Attempt to insert the items into the output, Time out and stop if any items would be lost
+                // Attempt to insert the items into the output, sleep and stop if any items would be lost
                 List<ItemStack> hammerDrops = FTBSluiceRecipes.getHammerDrops(level, inputStack);
 
                 // If we consumed all items, start processing
-                if (pushIntoInternalOutputInventory(hammerDrops, true) >= hammerDrops.size()) {
+                if (outputInventory.canInsertAll(hammerDrops)) {
                     heldItem = inputStack.copy();
                     heldItem.setCount(1);
 
                     inputInventory.extractItem(0, 1, false);
                     processing = true;
-                    maxProgress = getProps().getHammerSpeed().get();
+                    maxProgress = getProps().getHammerSpeed();
                     progress = 0;
+                    idleDelay = 0;
+                    syncCycle(level.getGameTime(), maxProgress);
                 } else {
-                    timeOut = getTimeoutDuration(); // Timeout for a while
+                    sleep();
                 }
             } else {
-                timeOut = getTimeoutDuration(); // Timeout for a while
+                sleep();
             }
         } else {
             if (progress < maxProgress) {
@@ -124,87 +169,351 @@ public class AutoHammerBlockEntity extends BlockEntity implements TickableBlockE
                 progress = 0;
                 maxProgress = 0;
 
-                pushIntoInternalOutputInventory(FTBSluiceRecipes.getHammerDrops(level, heldItem), false);
+                for (ItemStack drop : FTBSluiceRecipes.getHammerDrops(level, heldItem)) {
+                    outputInventory.internalInsert(drop, false);
+                }
                 heldItem = ItemStack.EMPTY;
+                syncCycle(0, -1);
             }
         }
     }
 
+    /**
+     * Takes the hammer out of the ticking list until an insert, an extract or a neighbour change wakes it.
+     * Neighbouring inventories don't tell us when their contents change, so while there is something to pull
+     * from or push into it also wakes itself to check, waiting twice as long each time.
+     */
+    private void sleep() {
+        TickScheduler scheduler = TickScheduler.get(level);
+        scheduler.sleep(this);
+        sleeping = true;
+        wakeAt = 0;
+
+        Direction facing = getBlockState().getValue(BlockStateProperties.HORIZONTAL_FACING);
+        boolean pollInput = !inputIsFull() && !(getExternalInventory(getInputDirection(facing)) instanceof EmptyHandler);
+        boolean pollOutput = !outputInventory.isEmpty() && !(getExternalInventory(getOutputDirection(facing)) instanceof EmptyHandler);
+        if (pollInput || pollOutput) {
+            idleDelay = Mth.clamp(idleDelay * 2, 1, IDLE_BACKOFF_MAX);
+            wakeAt = Math.max(level.getGameTime() + idleDelay, nextPull);
+            scheduler.wakeAt(this, wakeAt);
+        }
+
+        // Still showing as active, come back to switch that off once the window has passed
+        if (activeMismatchSince >= 0) {
+            long settle = activeMismatchSince + ACTIVE_STABLE_TICKS;
+            if (wakeAt <= 0 || settle < wakeAt) {
+                wakeAt = settle;
+                scheduler.wakeAt(this, settle);
+            }
+        }
+    }
+
+    /**
+     * Only lets the ACTIVE block state follow the hammer once it has wanted the other state for a while, so a
+     * hammer fed just in time doesn't flip it every few ticks. The state only picks the model, so clients are
+     * told about it without any neighbour updates.
+     */
+    private void updateActiveState() {
+        BlockState blockState = getBlockState();
+        boolean isActive = blockState.getValue(AutoHammerBlock.ACTIVE);
+        boolean shouldBeActive = processing || inputHasItemsAndOutputIsClear();
+        if (isActive == shouldBeActive) {
+            activeMismatchSince = -1;
+            return;
+        }
+
+        long time = level.getGameTime();
+        if (activeMismatchSince < 0) {
+            activeMismatchSince = time;
+        }
+
+        if (time - activeMismatchSince >= ACTIVE_STABLE_TICKS) {
+            activeMismatchSince = -1;
+            level.setBlock(worldPosition, blockState.setValue(AutoHammerBlock.ACTIVE, shouldBeActive), 2);
+        }
+    }
+
+    /**
+     * Puts a sleeping hammer back to work straight away.
+     */
+    void wake() {
+        if (sleeping && level != null && !level.isClientSide()) {
+            sleeping = false;
+            idleDelay = 0;
+            TickScheduler.get(level).wake(this);
+        }
+    }
+
+    @Override
+    public void setRemoved() {
+        super.setRemoved();
+        forgetSchedule();
+    }
+
+    @Override
+    public void onChunkUnloaded() {
+        super.onChunkUnloaded();
+        forgetSchedule();
+    }
+
+    private void forgetSchedule() {
+        if (level != null && !level.isClientSide()) {
+            TickScheduler.get(level).forget(this);
+        }
+    }
+
+    private void syncCycle(long startTime, int duration) {
+        SluiceNet.MAIN.send(PacketDistributor.TRACKING_CHUNK.with(() -> level.getChunkAt(worldPosition)), new SyncProgressPacket(worldPosition, startTime, duration));
+    }
+
+    @Override
+    public void predictCycle(long startTime, int duration) {
+        cycleStart = startTime;
+        maxProgress = Math.max(duration, 0);
+        progress = 0;
+        processing = duration >= 0;
+    }
+
     private void pushPullInventories() {
         // First, try and push items out of the output if any exist
         Direction facing = getBlockState().getValue(BlockStateProperties.HORIZONTAL_FACING);
+        pushOutputs(facing);
+
+        // Now try and insert items into the input inventory
+        pullInputs(facing);
+    }
+
+    /**
+     * Moves up to the configured number of items out of the output per tick, as many stacks as that takes.
+     * After an attempt that moved nothing it waits, twice as long each time, unless the target changes.
+     */
+    private void pushOutputs(Direction facing) {
+        if (level.getGameTime() < nextExport) {
+            return;
+        }
+
         IItemHandler external = getExternalInventory(getOutputDirection(facing));
-        if (!(external instanceof EmptyHandler)) {
-            for (int i = 0; i < outputInventory.getSlots(); i++) {
-                ItemStack stackInSlot = outputInventory.extractItem(i, outputInventory.getStackInSlot(i).getCount(), true);
-                if (!stackInSlot.isEmpty()) {
-                    ItemStack stack = ItemHandlerHelper.insertItem(external, stackInSlot, false);
-                    outputInventory.extractItem(i, stackInSlot.getCount() - stack.getCount(), false);
+        if (external instanceof EmptyHandler) {
+            return;
+        }
+
+        int budget = SluiceConfig.HAMMERS.get().exportBudget;
+        boolean attempted = false;
+        boolean moved = false;
+        for (int i = 0; i < outputInventory.getSlots() && budget > 0; i++) {
+            // Extracts come out a stack at a time, so keep going while the target takes them
+            while (budget > 0) {
+                ItemStack stackInSlot = outputInventory.extractItem(i, budget, true);
+                if (stackInSlot.isEmpty()) {
+                    break;
+                }
+
+                attempted = true;
+                int count = stackInSlot.getCount() - ItemHandlerHelper.insertItem(external, stackInSlot, false).getCount();
+                if (count <= 0) {
                     break;
                 }
+
+                outputInventory.extractItem(i, count, false);
+                budget -= count;
+                moved = true;
             }
         }
 
-        // Now try and insert items into the input inventory
+        if (moved) {
+            exportDelay = 0;
+        } else if (attempted) {
+            exportDelay = Mth.clamp(exportDelay * 2, 1, EXPORT_BACKOFF_MAX);
+            nextExport = level.getGameTime() + exportDelay;
+        }
+    }
+
+    /**
+     * Scans a bounded number of slots of the input side inventory per tick, carrying on from where the last
+     * scan stopped. A full pass that pulls nothing waits a little longer before the next one.
+     */
+    private void pullInputs(Direction facing) {
+        if (inputIsFull() || level.getGameTime() < nextPull) {
+            return;
+        }
+
         IItemHandler pullSource = getExternalInventory(getInputDirection(facing));
-        for (int i = 0; i < pullSource.getSlots(); i++) {
-            ItemStack stack = pullSource.extractItem(i, 64, true);
-            if (!stack.isEmpty() && hasItemAndIsHammerable(stack)) {
-                ItemStack insertedStack = ItemHandlerHelper.insertItemStacked(inputInventory, stack, false);
-                pullSource.extractItem(i, stack.getCount() - insertedStack.getCount(), false);
+        int slots = pullSource.getSlots();
+        if (slots == 0) {
+            return;
+        }
+
+        if (rejectedInputs.length != slots) {
+            rejectedInputs = new ItemStack[slots];
+            pullCursor = 0;
+            pulledThisPass = false;
+        }
+
+        int budget = Math.min(SluiceConfig.HAMMERS.get().pullScanBudget, slots);
+        for (int n = 0; n < budget && !inputIsFull(); n++) {
+            if (pullFromSlot(pullSource, pullCursor)) {
+                pulledThisPass = true;
+                pullDelay = 0;
+            }
+
+            if (++pullCursor >= slots) {
+                pullCursor = 0;
+                if (!pulledThisPass) {
+                    pullDelay = Mth.clamp(pullDelay * 2, 1, PULL_BACKOFF_MAX);
+                    nextPull = level.getGameTime() + pullDelay;
+                    return;
+                }
+
+                pulledThisPass = false;
             }
         }
     }
 
     /**
-     * Attempts to insert the item into the output inventory, and if successful, starts processing
+     * Peeks at the slot before extracting anything so empty slots, remembered rejects and items that can't
+     * join the current input cost a single call.
      *
-     * @param stack The item to insert
+     * @return if anything was pulled
      */
-    private boolean hasItemAndIsHammerable(ItemStack stack) {
-        return !stack.isEmpty() && FTBSluiceRecipes.hammerable(stack);
+    private boolean pullFromSlot(IItemHandler pullSource, int slot) {
+        ItemStack peek = pullSource.getStackInSlot(slot);
+        if (peek.isEmpty()) {
+            return false;
+        }
+
+        ItemStack rejected = rejectedInputs[slot];
+        if (rejected != null && rejected.getItem() == peek.getItem() && ItemStack.tagMatches(rejected, peek)) {
+            return false;
+        }
+
+        ItemStack current = inputInventory.getStackInSlot(0);
+        if (!current.isEmpty() && !ItemHandlerHelper.canItemStacksStack(current, peek)) {
+            return false;
+        }
+
+        if (!hasItemAndIsHammerable(peek) || !inputInventory.isItemValid(0, peek)) {
+            rejectedInputs[slot] = ItemHandlerHelper.copyStackWithSize(peek, 1);
+            return false;
+        }
+
+        rejectedInputs[slot] = null;
+        ItemStack stack = pullSource.extractItem(slot, 64, true);
+        if (stack.isEmpty()) {
+            return false;
+        }
+
+        int moved = stack.getCount() - ItemHandlerHelper.insertItemStacked(inputInventory, stack, false).getCount();
+        if (moved <= 0) {
+            return false;
+        }
+
+        pullSource.extractItem(slot, moved, false);
+        return true;
     }
 
-    private int pushIntoInternalOutputInventory(List<ItemStack> items, boolean simulate) {
-        int inserted = 0;
+    private boolean inputIsFull() {
+        ItemStack stack = inputInventory.getStackInSlot(0);
+        return !stack.isEmpty() && stack.getCount() >= Math.min(inputInventory.getSlotLimit(0), stack.getMaxStackSize());
+    }
 
-        for (ItemStack item : items) {
-            for (int i = 0; i < outputInventory.getSlots(); i++) {
-                ItemStack insert = outputInventory.internalInsert(i, item.copy(), simulate);
-                if (insert.isEmpty()) {
-                    inserted ++;
-                    break;
-                }
-            }
+    /**
+     * The contents of a neighbouring inventory changed, so whatever stopped us pushing into or pulling from it
+     * may have gone away.
+     */
+    void neighbourContentsChanged(BlockPos neighbour) {
+        Direction facing = getBlockState().getValue(BlockStateProperties.HORIZONTAL_FACING);
+        if (neighbour.equals(worldPosition.relative(getOutputDirection(facing)))) {
+            exportDelay = 0;
+            nextExport = 0;
+            wake();
+        } else if (neighbour.equals(worldPosition.relative(getInputDirection(facing)))) {
+            resetPulling();
+            wake();
         }
+    }
 
-        return inserted;
+    private void resetPulling() {
+        pullDelay = 0;
+        nextPull = 0;
+    }
+
+    /**
+     * Attempts to insert the item into the output inventory, and if successful, starts processing
+     *
+     * @param stack The item to insert
+     */
+    private boolean hasItemAndIsHammerable(ItemStack stack) {
+        return !stack.isEmpty() && FTBSluiceRecipes.hammerable(level, stack);
     }
 
     private IItemHandler getExternalInventory(Direction direction) {
-        BlockEntity blockEntity = level.getBlockEntity(worldPosition.relative(direction));
-        if (blockEntity != null) {
-            return blockEntity.getCapability(CapabilityItemHandler.ITEM_HANDLER_CAPABILITY, direction.getOpposite()).orElse(EmptyHandler.INSTANCE);
+        LazyOptional<IItemHandler> cached = neighbourInventories.get(direction);
+        if (cached == null) {
+            cached = LazyOptional.empty();
+
+            BlockEntity blockEntity = level.getBlockEntity(worldPosition.relative(direction));
+            if (blockEntity != null) {
+                LazyOptional<IItemHandler> capability = blockEntity.getCapability(CapabilityItemHandler.ITEM_HANDLER_CAPABILITY, direction.getOpposite());
+                if (capability.isPresent()) {
+                    if (subscribedInventories.get(direction) != capability) {
+                        subscribedInventories.put(direction, capability);
+                        capability.addListener(e -> {
+                            if (subscribedInventories.get(direction) == e) {
+                                subscribedInventories.remove(direction);
+                            }
+
+                            if (neighbourInventories.get(direction) == e) {
+                                neighbourInventories.remove(direction);
+                            }
+                        });
+                    }
+
+                    cached = capability;
+                }
+            }
+
+            neighbourInventories.put(direction, cached);
         }
 
-        return EmptyHandler.INSTANCE;
+        return cached.orElse(EmptyHandler.INSTANCE);
     }
 
-    public boolean inputHasItemsAndOutputIsClear() {
-        if (inputInventory.getStackInSlot(0).isEmpty()) {
-            return false;
-        }
+    /**
+     * Forgets the resolved neighbour inventories so they're looked up again on the next push or pull.
+     */
+    public void invalidateNeighbours() {
+        neighbourInventories.clear();
+
+        // Could be a different inventory now
+        rejectedInputs = new ItemStack[0];
+        resetPulling();
+        exportDelay = 0;
+        nextExport = 0;
+        wake();
+    }
 
-        boolean hasSpace = false;
-        for (int i = 0; i < outputInventory.getSlots(); i++) {
-            ItemStack stackInSlot = outputInventory.getStackInSlot(i);
-            if (stackInSlot.isEmpty() || (stackInSlot.getCount() != stackInSlot.getMaxStackSize() && stackInSlot.getItem() == inputInventory.getStackInSlot(0).getItem())) {
-                hasSpace = true;
-                break;
+    /**
+     * Vanilla calls this on every block state change, our own ACTIVE changes included. Neighbours are cached by
+     * direction so they stay valid, only a new facing moves the input side and needs the pull state reset.
+     */
+    @Override
+    public void clearCache() {
+        super.clearCache();
+
+        if (level != null) {
+            Direction facing = getBlockState().getValue(BlockStateProperties.HORIZONTAL_FACING);
+            if (facing != pullFacing) {
+                pullFacing = facing;
+                rejectedInputs = new ItemStack[0];
+                resetPulling();
+                wake();
             }
         }
+    }
 
-        return hasSpace;
+    public boolean inputHasItemsAndOutputIsClear() {
+        ItemStack input = inputInventory.getStackInSlot(0);
+        return !input.isEmpty() && outputInventory.canInsertAll(FTBSluiceRecipes.getHammerDrops(level, input));
     }
 
     @Override
@@ -231,6 +540,30 @@ public class AutoHammerBlockEntity extends BlockEntity implements TickableBlockE
         super.load(state, tag);
     }
 
+    /**
+     * Only what the client predicts progress from, the inventories stay on the server. The base save still
+     * writes the id, position and Forge data.
+     */
+    @Override
+    public CompoundTag getUpdateTag() {
+        CompoundTag tag = super.save(new CompoundTag());
+        tag.putInt("Progress", progress);
+        tag.putInt("MaxProgress", maxProgress);
+        tag.putBoolean("Processing", processing);
+        return tag;
+    }
+
+    @Override
+    public void handleUpdateTag(BlockState state, CompoundTag tag) {
+        progress = tag.getInt("Progress");
+        maxProgress = tag.getInt("MaxProgress");
+        processing = tag.getBoolean("Processing");
+
+        if (level != null) {
+            cycleStart = level.getGameTime() - progress;
+        }
+    }
+
     public static Direction getInputDirection(Direction facing) {
         return Direction.from3DDataValue(IO_DIRECTIONAL_MATRIX[facing.get3DDataValue() - 2][0]);
     }
@@ -256,6 +589,10 @@ public class AutoHammerBlockEntity extends BlockEntity implements TickableBlockE
     }
 
     public int getProgress() {
+        if (level != null && level.isClientSide() && processing) {
+            return (int) Mth.clamp(level.getGameTime() - cycleStart, 0, maxProgress);
+        }
+
         return progress;
     }
 
@@ -263,12 +600,20 @@ public class AutoHammerBlockEntity extends BlockEntity implements TickableBlockE
         return maxProgress;
     }
 
+    /**
+     * @return how many ticks are left until a sleeping hammer checks its neighbours again, 0 when awake or
+     * waiting for an insert or extract
+     */
     public int getTimeOut() {
-        return timeOut;
+        if (!sleeping || wakeAt <= 0 || level == null) {
+            return 0;
+        }
+
+        return (int) Math.max(wakeAt - level.getGameTime(), 0);
     }
 
     public int getTimeoutDuration() {
-        return 100;
+        return idleDelay;
     }
 
     public ItemStack getHeldItem() {
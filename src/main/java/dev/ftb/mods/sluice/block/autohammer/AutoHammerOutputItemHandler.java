@@ -1,18 +1,71 @@
 package dev.ftb.mods.sluice.block.autohammer;
 
+import it.unimi.dsi.fastutil.HashCommon;
 import net.minecraft.nbt.CompoundTag;
 import net.minecraft.nbt.ListTag;
 import net.minecraft.world.item.ItemStack;
 import net.minecraftforge.common.util.Constants;
-import net.minecraftforge.items.ItemStackHandler;
+import net.minecraftforge.common.util.INBTSerializable;
+import net.minecraftforge.items.IItemHandler;
+import net.minecraftforge.items.ItemHandlerHelper;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The auto hammer's output. Every distinct item and NBT combination gets a single entry however much of it there
+ * is, found through a small open addressing index, so merging a drop in is one probe instead of a walk over every
+ * slot. Entries are kept packed at the front and slot {@code i} of the item handler view is simply entry
+ * {@code i}. An entry's count lives in its stack and can go up to {@link #SLOT_LIMIT}, far past the max stack
+ * size, extracts hand out at most a normal stack at a time.
+ */
+public class AutoHammerOutputItemHandler implements IItemHandler, INBTSerializable<CompoundTag> {
+    // The most of one item and NBT combination a single entry holds
+    public static final int SLOT_LIMIT = 46656;
 
-public class AutoHammerOutputItemHandler extends ItemStackHandler {
     private final AutoHammerBlockEntity autoHammerBlockEntity;
+    private final int size;
+
+    // The entries in use come first, the rest are empty
+    private final ItemStack[] stacks;
+    private final int[] hashes;
+    private int entries = 0;
+
+    // Hash -> entry + 1, or 0 when free. Linear probing, always at least half empty.
+    private final int[] index;
+    private final int mask;
+
+    // What serializeNBT last built, dropped whenever the contents change
+    @Nullable
+    private CompoundTag savedTag;
 
     public AutoHammerOutputItemHandler(AutoHammerBlockEntity autoHammerBlockEntity, int size) {
-        super(size);
         this.autoHammerBlockEntity = autoHammerBlockEntity;
+        this.size = size;
+        stacks = new ItemStack[size];
+        hashes = new int[size];
+        Arrays.fill(stacks, ItemStack.EMPTY);
+
+        int tableSize = 4;
+        while (tableSize < size * 2) {
+            tableSize <<= 1;
+        }
+
+        index = new int[tableSize];
+        mask = tableSize - 1;
+    }
+
+    @Override
+    public int getSlots() {
+        return size;
+    }
+
+    @NotNull
+    @Override
+    public ItemStack getStackInSlot(int slot) {
+        return slot >= 0 && slot < entries ? stacks[slot] : ItemStack.EMPTY;
     }
 
     @NotNull
@@ -21,63 +74,259 @@ public class AutoHammerOutputItemHandler extends ItemStackHandler {
         return stack;
     }
 
+    /**
+     * Merges the stack into its entry, or starts a new one if there is a free entry left.
+     *
+     * @return whatever didn't fit
+     */
     @NotNull
-    public ItemStack internalInsert(int slot, @NotNull ItemStack stack, boolean simulate) {
-        ItemStack itemStack = super.insertItem(slot, stack, simulate);
+    public ItemStack internalInsert(@NotNull ItemStack stack, boolean simulate) {
+        if (stack.isEmpty()) {
+            return ItemStack.EMPTY;
+        }
+
+        int hash = hash(stack);
+        int entry = find(stack, hash);
+        if (entry < 0 && entries >= size) {
+            return stack;
+        }
+
+        int accepted = Math.min(stack.getCount(), SLOT_LIMIT - (entry < 0 ? 0 : stacks[entry].getCount()));
+        if (accepted <= 0) {
+            return stack;
+        }
+
         if (!simulate) {
-            autoHammerBlockEntity.setChanged();
+            if (entry < 0) {
+                addEntry(stack, hash, accepted);
+            } else {
+                stacks[entry].grow(accepted);
+            }
+
+            onContentsChanged();
         }
-        return itemStack;
+
+        return accepted == stack.getCount() ? ItemStack.EMPTY : ItemHandlerHelper.copyStackWithSize(stack, stack.getCount() - accepted);
+    }
+
+    /**
+     * @return if every one of the stacks would fit at the same time
+     */
+    public boolean canInsertAll(List<ItemStack> items) {
+        int newEntries = 0;
+        for (int i = 0; i < items.size(); i++) {
+            ItemStack stack = items.get(i);
+            if (stack.isEmpty() || matchesAnyBefore(items, i)) {
+                continue;
+            }
+
+            // Everything in the list that lands in the same entry
+            int count = stack.getCount();
+            for (int j = i + 1; j < items.size(); j++) {
+                if (matches(items.get(j), stack)) {
+                    count += items.get(j).getCount();
+                }
+            }
+
+            int entry = find(stack, hash(stack));
+            if (entry < 0) {
+                newEntries++;
+            } else {
+                count += stacks[entry].getCount();
+            }
+
+            if (count > SLOT_LIMIT) {
+                return false;
+            }
+        }
+
+        return entries + newEntries <= size;
     }
 
     @NotNull
     @Override
     public ItemStack extractItem(int slot, int amount, boolean simulate) {
-        ItemStack itemStack = super.extractItem(slot, amount, simulate);
+        if (amount <= 0 || slot < 0 || slot >= entries) {
+            return ItemStack.EMPTY;
+        }
+
+        ItemStack stack = stacks[slot];
+        int count = Math.min(Math.min(amount, stack.getCount()), stack.getMaxStackSize());
+        ItemStack extracted = ItemHandlerHelper.copyStackWithSize(stack, count);
         if (!simulate) {
-            autoHammerBlockEntity.setChanged();
+            if (count == stack.getCount()) {
+                removeEntry(slot);
+            } else {
+                stack.shrink(count);
+            }
+
+            onContentsChanged();
+            autoHammerBlockEntity.wake();
         }
-        return itemStack;
+
+        return extracted;
     }
 
     @Override
-    protected int getStackLimit(int slot, @NotNull ItemStack stack) {
-        return 46656;
+    public int getSlotLimit(int slot) {
+        return SLOT_LIMIT;
     }
 
+    @Override
+    public boolean isItemValid(int slot, @NotNull ItemStack stack) {
+        return false;
+    }
+
+    public boolean isEmpty() {
+        return entries == 0;
+    }
+
+    private void onContentsChanged() {
+        savedTag = null;
+        autoHammerBlockEntity.setChanged();
+    }
+
+    private int find(ItemStack stack, int hash) {
+        for (int pos = hash & mask; index[pos] != 0; pos = (pos + 1) & mask) {
+            int entry = index[pos] - 1;
+            if (hashes[entry] == hash && matches(stacks[entry], stack)) {
+                return entry;
+            }
+        }
+
+        return -1;
+    }
+
+    private void addEntry(ItemStack stack, int hash, int count) {
+        int entry = entries++;
+        stacks[entry] = ItemHandlerHelper.copyStackWithSize(stack, count);
+        hashes[entry] = hash;
+
+        int pos = hash & mask;
+        while (index[pos] != 0) {
+            pos = (pos + 1) & mask;
+        }
+
+        index[pos] = entry + 1;
+    }
+
+    private void removeEntry(int entry) {
+        int pos = indexOf(entry);
+
+        // Shift the rest of the probe run back over the hole so no lookup stops short
+        int next = pos;
+        while (true) {
+            next = (next + 1) & mask;
+            if (index[next] == 0) {
+                break;
+            }
+
+            int home = hashes[index[next] - 1] & mask;
+            if (((next - home) & mask) >= ((next - pos) & mask)) {
+                index[pos] = index[next];
+                pos = next;
+            }
+        }
+
+        index[pos] = 0;
+
+        // Move the last entry into the hole to keep them packed
+        int last = --entries;
+        if (entry != last) {
+            index[indexOf(last)] = entry + 1;
+            stacks[entry] = stacks[last];
+            hashes[entry] = hashes[last];
+        }
+
+        stacks[last] = ItemStack.EMPTY;
+    }
+
+    private int indexOf(int entry) {
+        int pos = hashes[entry] & mask;
+        while (index[pos] != entry + 1) {
+            pos = (pos + 1) & mask;
+        }
+
+        return pos;
+    }
+
+    private void clear() {
+        Arrays.fill(stacks, ItemStack.EMPTY);
+        Arrays.fill(index, 0);
+        entries = 0;
+    }
+
+    /**
+     * Adds to the contents while loading, ignoring the slot limit so nothing that was saved gets lost.
+     */
+    private void load(ItemStack stack, int count) {
+        if (stack.isEmpty() || count <= 0) {
+            return;
+        }
+
+        int hash = hash(stack);
+        int entry = find(stack, hash);
+        if (entry >= 0) {
+            stacks[entry].grow(count);
+        } else if (entries < size) {
+            addEntry(stack, hash, count);
+        }
+    }
+
+    /**
+     * One compound per entry, the stack saved as a single item so its NBT and capabilities come along, with the
+     * real count next to it. It's only rebuilt after the contents change, every other save copies the last one.
+     */
     @Override
     public CompoundTag serializeNBT() {
-        ListTag nbtTagList = new ListTag();
-        for (int i = 0; i < stacks.size(); i++) {
-            if (!stacks.get(i).isEmpty()) {
-                CompoundTag itemTag = new CompoundTag();
-                itemTag.putInt("Slot", i);
-                stacks.get(i).save(itemTag);
-                itemTag.putByte("Count", (byte) 1);
-                itemTag.putInt("LargeCount", stacks.get(i).getCount());
-                nbtTagList.add(itemTag);
+        if (savedTag == null) {
+            ListTag list = new ListTag();
+            for (int i = 0; i < entries; i++) {
+                ItemStack stack = stacks[i];
+                CompoundTag entry = ItemHandlerHelper.copyStackWithSize(stack, 1).save(new CompoundTag());
+                entry.putInt("LargeCount", stack.getCount());
+                list.add(entry);
             }
+
+            savedTag = new CompoundTag();
+            savedTag.put("Entries", list);
         }
-        CompoundTag nbt = new CompoundTag();
-        nbt.put("Items", nbtTagList);
-        nbt.putInt("Size", stacks.size());
-        return nbt;
+
+        // The caller owns what it gets back, the cache has to stay untouched
+        return savedTag.copy();
     }
 
     @Override
     public void deserializeNBT(CompoundTag nbt) {
-        setSize(nbt.contains("Size", Constants.NBT.TAG_INT) ? nbt.getInt("Size") : stacks.size());
-        ListTag tagList = nbt.getList("Items", Constants.NBT.TAG_COMPOUND);
-        for (int i = 0; i < tagList.size(); i++) {
-            CompoundTag itemTags = tagList.getCompound(i);
-            int slot = itemTags.getInt("Slot");
-
-            if (slot >= 0 && slot < stacks.size()) {
-                ItemStack of = ItemStack.of(itemTags);
-                of.setCount(itemTags.getInt("LargeCount"));
-                stacks.set(slot, of);
+        clear();
+
+        // Saved before the output was keyed by item there was a stack per slot instead, stored the same way
+        String key = nbt.contains("Entries", Constants.NBT.TAG_LIST) ? "Entries" : "Items";
+        ListTag list = nbt.getList(key, Constants.NBT.TAG_COMPOUND);
+        for (int i = 0; i < list.size(); i++) {
+            CompoundTag entry = list.getCompound(i);
+            load(ItemStack.of(entry), entry.getInt("LargeCount"));
+        }
+
+        savedTag = null;
+    }
+
+    private static int hash(ItemStack stack) {
+        int hash = stack.getItem().hashCode() * 31 + (stack.hasTag() ? stack.getTag().hashCode() : 0);
+        return HashCommon.mix(hash);
+    }
+
+    private static boolean matches(ItemStack a, ItemStack b) {
+        return a.getItem() == b.getItem() && ItemStack.tagMatches(a, b);
+    }
+
+    private static boolean matchesAnyBefore(List<ItemStack> items, int end) {
+        for (int i = 0; i < end; i++) {
+            if (matches(items.get(i), items.get(end))) {
+                return true;
             }
         }
-        onLoad();
+
+        return false;
     }
 }
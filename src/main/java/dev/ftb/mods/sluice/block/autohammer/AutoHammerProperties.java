@@ -4,20 +4,20 @@ import dev.ftb.mods.sluice.FTBSluice;
 import dev.ftb.mods.sluice.SluiceConfig;
 import dev.ftb.mods.sluice.item.SluiceModItems;
 import net.minecraft.world.item.Item;
-import net.minecraftforge.common.ForgeConfigSpec;
 
 import java.util.function.Supplier;
+import java.util.function.ToIntFunction;
 
 public enum AutoHammerProperties {
-    IRON(SluiceModItems.IRON_HAMMER, SluiceConfig.HAMMERS.speedIron),
-    GOLD(SluiceModItems.GOLD_HAMMER , SluiceConfig.HAMMERS.speedGold),
-    DIAMOND(SluiceModItems.DIAMOND_HAMMER, SluiceConfig.HAMMERS.speedDiamond),
-    NETHERITE(SluiceModItems.NETHERITE_HAMMER, SluiceConfig.HAMMERS.speedNetherite);
+    IRON(SluiceModItems.IRON_HAMMER, e -> e.speedIron),
+    GOLD(SluiceModItems.GOLD_HAMMER , e -> e.speedGold),
+    DIAMOND(SluiceModItems.DIAMOND_HAMMER, e -> e.speedDiamond),
+    NETHERITE(SluiceModItems.NETHERITE_HAMMER, e -> e.speedNetherite);
 
     Supplier<Item> hammerItem;
-    ForgeConfigSpec.IntValue hammerSpeed;
+    ToIntFunction<SluiceConfig.CategoryHammers.Snapshot> hammerSpeed;
 
-    AutoHammerProperties(Supplier<Item> hammerItem, ForgeConfigSpec.IntValue hammerSpeed) {
+    AutoHammerProperties(Supplier<Item> hammerItem, ToIntFunction<SluiceConfig.CategoryHammers.Snapshot> hammerSpeed) {
         this.hammerItem = hammerItem;
         this.hammerSpeed = hammerSpeed;
     }
@@ -26,7 +26,7 @@ public enum AutoHammerProperties {
         return hammerItem;
     }
 
-    public ForgeConfigSpec.IntValue getHammerSpeed() {
-        return hammerSpeed;
+    public int getHammerSpeed() {
+        return hammerSpeed.applyAsInt(SluiceConfig.HAMMERS.get());
     }
 }
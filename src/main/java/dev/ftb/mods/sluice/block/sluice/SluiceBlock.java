@@ -111,6 +111,8 @@ public class SluiceBlock extends Block {
             return SluiceBlockEntities.DIAMOND_SLUICE.get().create();
         } else if (state.getBlock() == SluiceBlocks.EMPOWERED_SLUICE.get()) {
             return SluiceBlockEntities.EMPOWERED_SLUICE.get().create();
+        } else if (state.getBlock() == SluiceBlocks.CONTROLLER_SLUICE.get()) {
+            return SluiceBlockEntities.CONTROLLER_SLUICE.get().create();
         } else {
             return SluiceBlockEntities.NETHERITE_SLUICE.get().create();
         }
@@ -164,7 +166,7 @@ public class SluiceBlock extends Block {
 
         SluiceBlockEntity sluice = (SluiceBlockEntity) tileEntity;
 
-        if (itemStack.isEmpty() && !world.isClientSide() && !player.isCrouching() && sluice.properties.config.upgradeable.get()) {
+        if (itemStack.isEmpty() && !world.isClientSide() && !player.isCrouching() && sluice.properties.settings().upgradeable) {
             NetworkHooks.openGui((ServerPlayer) player, sluice, pos);
             return InteractionResult.SUCCESS;
         } else if (player.isCrouching()) {
@@ -183,7 +185,7 @@ public class SluiceBlock extends Block {
         } else if (itemStack.getItem() instanceof MeshItem) {
             MeshType type = ((MeshItem) itemStack.getItem()).mesh;
             if (state.getValue(MESH) != type) {
-                if (type == MeshType.BLAZING && state.getBlock() != SluiceBlocks.EMPOWERED_SLUICE.get()) {
+                if (type == MeshType.BLAZING && state.getBlock() != SluiceBlocks.EMPOWERED_SLUICE.get() && state.getBlock() != SluiceBlocks.CONTROLLER_SLUICE.get()) {
                     if (world.isClientSide) {
                         player.displayClientMessage(new TranslatableComponent(FTBSluice.MOD_ID + ".block.sluice.warning.wrong_sluice"), true);
                     }
@@ -209,13 +211,13 @@ public class SluiceBlock extends Block {
             if (!world.isClientSide()) {
                 FluidUtil.interactWithFluidHandler(player, hand, sluice.tank);
             }
-        } else if (FTBSluiceRecipes.itemIsSluiceInput(state.getValue(MESH), itemStack)) {
+        } else if (FTBSluiceRecipes.itemIsSluiceInput(world, state.getValue(MESH), itemStack)) {
             if (!world.isClientSide()) {
-                if (sluice.inventory.getStackInSlot(0).isEmpty()) {
+                // Queue it up if there's room
+                ItemStack copy = itemStack.copy();
+                copy.setCount(1);
+                if (sluice.inventory.internalInsert(0, copy, false).isEmpty()) {
                     sluice.clearCache();
-                    ItemStack copy = itemStack.copy();
-                    copy.setCount(1);
-                    sluice.inventory.internalInsert(0, copy, false);
                     itemStack.shrink(1);
                 }
             }
@@ -246,6 +248,20 @@ public class SluiceBlock extends Block {
         return super.updateShape(state, facing, facingState, world, pos, facingPos);
     }
 
+    @Override
+    @Deprecated
+    public void neighborChanged(BlockState state, Level world, BlockPos pos, Block block, BlockPos fromPos, boolean isMoving) {
+        super.neighborChanged(state, world, pos, block, fromPos, isMoving);
+
+        // The target inventory sits right in front of the funnel
+        if (!world.isClientSide() && state.getValue(PART) == Part.FUNNEL && fromPos.equals(pos.relative(state.getValue(HORIZONTAL_FACING)))) {
+            BlockEntity blockEntity = world.getBlockEntity(pos.relative(state.getValue(HORIZONTAL_FACING).getOpposite()));
+            if (blockEntity instanceof SluiceBlockEntity) {
+                ((SluiceBlockEntity) blockEntity).invalidateTarget();
+            }
+        }
+    }
+
     @Override
     public BlockState rotate(BlockState p_185499_1_, Rotation p_185499_2_) {
         return p_185499_1_;
@@ -286,6 +302,9 @@ public class SluiceBlock extends Block {
                 if (tileEntity instanceof SluiceBlockEntity) {
                     SluiceBlockEntity sluice = (SluiceBlockEntity) tileEntity;
                     popResource(world, pos, sluice.inventory.getStackInSlot(0));
+                    for (int i = 0; i < sluice.outputBuffer.getSlots(); i++) {
+                        popResource(world, pos, sluice.outputBuffer.getStackInSlot(i));
+                    }
                     world.updateNeighbourForOutputSignal(pos, this);
 
                     // Drop the upgrade inventory
@@ -315,18 +334,18 @@ public class SluiceBlock extends Block {
 
         if (isShift) {
             tooltip.add(new TranslatableComponent("ftbsluice.properties.processing_time",
-                    new TextComponent(props.config.timeMod.get() + "").withStyle(TextUtil.COLOUR_HIGHLIGHT)).withStyle(ChatFormatting.GRAY));
+                    new TextComponent(props.settings().timeMod + "").withStyle(TextUtil.COLOUR_HIGHLIGHT)).withStyle(ChatFormatting.GRAY));
             tooltip.add(new TranslatableComponent("ftbsluice.properties.fluid_usage",
-                    new TextComponent(props.config.fluidMod.get() + "").withStyle(TextUtil.COLOUR_HIGHLIGHT)).withStyle(ChatFormatting.GRAY));
+                    new TextComponent(props.settings().fluidMod + "").withStyle(TextUtil.COLOUR_HIGHLIGHT)).withStyle(ChatFormatting.GRAY));
             tooltip.add(new TranslatableComponent("ftbsluice.properties.tank",
-                    new TextComponent(props.config.tankCap.get() + "").withStyle(TextUtil.COLOUR_HIGHLIGHT)).withStyle(ChatFormatting.GRAY));
+                    new TextComponent(props.settings().tankCap + "").withStyle(TextUtil.COLOUR_HIGHLIGHT)).withStyle(ChatFormatting.GRAY));
 
             tooltip.add(new TranslatableComponent("ftbsluice.properties.auto",
-                    new TranslatableComponent("ftbsluice.properties.auto.item").withStyle(props.config.allowsIO.get() ? TextUtil.COLOUR_TRUE : TextUtil.COLOUR_FALSE),
-                    new TranslatableComponent("ftbsluice.properties.auto.fluid").withStyle(props.config.allowsTank.get() ? TextUtil.COLOUR_TRUE : TextUtil.COLOUR_FALSE)
+                    new TranslatableComponent("ftbsluice.properties.auto.item").withStyle(props.settings().allowsIO ? TextUtil.COLOUR_TRUE : TextUtil.COLOUR_FALSE),
+                    new TranslatableComponent("ftbsluice.properties.auto.fluid").withStyle(props.settings().allowsTank ? TextUtil.COLOUR_TRUE : TextUtil.COLOUR_FALSE)
             ).withStyle(ChatFormatting.GRAY));
 
-            if (props.config.upgradeable.get()) {
+            if (props.settings().upgradeable) {
                 tooltip.add(new TranslatableComponent("ftbsluice.properties.upgradeable").withStyle(TextUtil.COLOUR_INFO));
             }
         } else {
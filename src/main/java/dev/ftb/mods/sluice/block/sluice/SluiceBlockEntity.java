@@ -2,12 +2,16 @@ package dev.ftb.mods.sluice.block.sluice;
 
 import dev.ftb.mods.sluice.SluiceConfig;
 import dev.ftb.mods.sluice.block.MeshType;
+import dev.ftb.mods.sluice.block.PredictedProgress;
 import dev.ftb.mods.sluice.block.SluiceBlockEntities;
 import dev.ftb.mods.sluice.capabilities.Energy;
 import dev.ftb.mods.sluice.capabilities.FluidCap;
 import dev.ftb.mods.sluice.capabilities.ItemsHandler;
+import dev.ftb.mods.sluice.capabilities.OutputBuffer;
 import dev.ftb.mods.sluice.item.UpgradeItem;
 import dev.ftb.mods.sluice.item.Upgrades;
+import dev.ftb.mods.sluice.net.SluiceNet;
+import dev.ftb.mods.sluice.net.SyncSluicePacket;
 import dev.ftb.mods.sluice.recipe.FTBSluiceRecipes;
 import dev.ftb.mods.sluice.recipe.ItemWithWeight;
 import dev.ftb.mods.sluice.recipe.SluiceRecipeInfo;
@@ -29,36 +33,38 @@ import net.minecraft.world.item.ItemStack;
 import net.minecraft.world.level.Level;
 import net.minecraft.world.level.block.entity.BlockEntity;
 import net.minecraft.world.level.block.entity.BlockEntityType;
-import net.minecraft.world.level.block.entity.TickableBlockEntity;
 import net.minecraft.world.level.block.state.BlockState;
 import net.minecraft.world.phys.AABB;
 import net.minecraftforge.api.distmarker.Dist;
 import net.minecraftforge.api.distmarker.OnlyIn;
 import net.minecraftforge.common.capabilities.Capability;
-import net.minecraftforge.common.util.Constants;
 import net.minecraftforge.common.util.LazyOptional;
 import net.minecraftforge.energy.CapabilityEnergy;
+import net.minecraftforge.fml.network.PacketDistributor;
+import net.minecraftforge.fluids.FluidStack;
 import net.minecraftforge.fluids.capability.CapabilityFluidHandler;
 import net.minecraftforge.fluids.capability.IFluidHandler;
 import net.minecraftforge.items.CapabilityItemHandler;
 import net.minecraftforge.items.IItemHandler;
 import net.minecraftforge.items.ItemHandlerHelper;
 import net.minecraftforge.items.ItemStackHandler;
+import net.minecraftforge.items.wrapper.CombinedInvWrapper;
 import net.minecraftforge.items.wrapper.EmptyHandler;
 import org.jetbrains.annotations.NotNull;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
 import java.util.stream.Collectors;
 
 import static net.minecraft.world.level.block.state.properties.BlockStateProperties.HORIZONTAL_FACING;
 
-public class SluiceBlockEntity extends BlockEntity implements TickableBlockEntity, MenuProvider {
+public class SluiceBlockEntity extends BlockEntity implements MenuProvider, PredictedProgress {
     public final ItemsHandler inventory;
     public final LazyOptional<ItemsHandler> inventoryOptional;
+    public final OutputBuffer outputBuffer;
+    private final LazyOptional<IItemHandler> itemHandlerOptional;
     public final FluidCap tank;
     public final LazyOptional<FluidCap> fluidOptional;
     public final SluiceProperties properties;
@@ -94,6 +100,8 @@ public class SluiceBlockEntity extends BlockEntity implements TickableBlockEntit
         @Override
         protected void onContentsChanged(int slot) {
             SluiceBlockEntity.this.updateUpgradeCache(this);
+            SluiceBlockEntity.this.setChanged();
+            SluiceBlockEntity.this.wake();
         }
     };
 
@@ -101,34 +109,76 @@ public class SluiceBlockEntity extends BlockEntity implements TickableBlockEntit
     public LazyOptional<Energy> energyOptional;
     /**
      * Amount of progress the processing step has made, 100 being fully processed and can drop
-     * the outputs
+     * the outputs. While the sluice is active these are parked and the real values live in the
+     * {@link SluiceManager}, use the getters.
      */
-    public int processed;
-    public int maxProcessed;
-    private int fluidUsage;
+    int processed;
+    int maxProcessed;
+    int fluidUsage;
+    // How many inputs the running cycle is processing, fluidUsage already covers all of them
+    private int batch = 1;
+    // Client only, the game time the current cycle started at
+    private long cycleStart;
+
+    // Slot in the level's SluiceManager, -1 while idle or on the client
+    int slot = -1;
+    private SluiceManager manager;
+
+    // Game time of the last save, used to catch up on the time the chunk spent unloaded
+    private long savedAt = 0;
+
+    // Output the target inventory had no room for is retried on a backoff, see flushOutput
+    private static final int OUTPUT_BUFFER_SLOTS = 9;
+    private static final int OUTPUT_RETRY_MIN = 5;
+    private static final int OUTPUT_RETRY_MAX = 100;
+    long nextOutputRetry = 0;
+    private int outputRetryDelay = OUTPUT_RETRY_MIN;
+
+    // The inventory in front of the funnel, null until it's looked up again. See invalidateTarget.
+    @Nullable
+    private LazyOptional<IItemHandler> targetInventory = null;
+    // The optional that already has our invalidation listener. Unlike targetInventory this survives
+    // invalidateTarget, so looking the same inventory up again doesn't add another listener to it.
+    @Nullable
+    private LazyOptional<IItemHandler> subscribedTarget = null;
 
     // Upgrade type, multiplication
     public final Object2IntMap<Upgrades> upgradeCache = new Object2IntOpenHashMap<>();
+
+    // Compiled from the upgrade cache whenever it changes, see updateUpgradeCache
+    private int totalUpgrades = 0;
+    private int luckUpgrades = 0;
+    private int speedModifier = 0;
+    private int consumptionModifier = 0;
     public int lastPowerCost = 0;
 
+    // What the tracking clients were last sent, see syncChanges
+    private long syncedCycleStart = 0;
+    private int syncedMaxProcessed = -1;
+    private FluidStack syncedFluid = FluidStack.EMPTY;
+    private ItemStack syncedInput = ItemStack.EMPTY;
+    private int syncedPowerCost = 0;
+
     public SluiceBlockEntity(BlockEntityType<?> type, SluiceProperties properties) {
         super(type);
 
         // Finds the correct properties from the block for the specific sluice tier
         this.properties = properties;
 
-        int powerCost = this.properties.config.costPerUse.get();
+        int powerCost = this.properties.settings().costPerUse;
         this.isAdvanced = powerCost > 0;
 
+        // Enough for a full batch at the max upgrade count
         this.energy = new Energy(!isAdvanced
                 ? 0
-                : (int) Math.min(Math.pow(SluiceConfig.GENERAL.exponentialCostBaseN.get(), SluiceConfig.GENERAL.maxUpgradeStackSize.get() * 3 + 1)
-                * powerCost, Integer.MAX_VALUE), e -> {
+                : (int) Math.min(Math.pow(SluiceConfig.GENERAL.get().exponentialCostBaseN, SluiceConfig.GENERAL.get().maxUpgradeStackSize * 3 + 1)
+                * powerCost * this.properties.settings().batchSize, Integer.MAX_VALUE), e -> {
             // Shouldn't be needed but it's better safe.
             if (!this.isAdvanced) {
                 return;
             }
-            this.setChanged();
+            this.markDirty();
+            this.wake();
         });
 
         this.energyOptional = LazyOptional.of(() -> this.energy);
@@ -136,23 +186,30 @@ public class SluiceBlockEntity extends BlockEntity implements TickableBlockEntit
         this.fluidUsage = -1;
 
         // Handles state changing
-        this.tank = new FluidCap(true, properties.config.tankCap.get(), e -> true);
+        this.tank = new FluidCap(true, properties.settings().tankCap, e -> true) {
+            @Override
+            protected void onContentsChanged() {
+                SluiceBlockEntity.this.markDirty();
+                SluiceBlockEntity.this.wake();
+            }
+        };
         this.fluidOptional = LazyOptional.of(() -> this.tank);
 
-        this.inventory = new ItemsHandler(!properties.config.allowsIO.get(), 1) {
+        this.inventory = new ItemsHandler(!properties.settings().allowsIO, 1) {
             @Override
             protected void onContentsChanged(int slot) {
                 SluiceBlockEntity.this.setChanged();
+                SluiceBlockEntity.this.wake();
             }
 
             @Override
             public int getSlotLimit(int slot) {
-                return 1;
+                return SluiceBlockEntity.this.properties.settings().inputQueueSize;
             }
 
             @Override
             public @NotNull ItemStack insertItem(int slot, @NotNull ItemStack stack, boolean simulate) {
-                if (FTBSluiceRecipes.itemIsSluiceInput(SluiceBlockEntity.this.getBlockState().getValue(SluiceBlock.MESH), stack)) {
+                if (FTBSluiceRecipes.itemIsSluiceInput(SluiceBlockEntity.this.level, SluiceBlockEntity.this.getBlockState().getValue(SluiceBlock.MESH), stack)) {
                     return super.insertItem(slot, stack, simulate);
                 }
 
@@ -167,6 +224,16 @@ public class SluiceBlockEntity extends BlockEntity implements TickableBlockEntit
         };
 
         this.inventoryOptional = LazyOptional.of(() -> this.inventory);
+
+        this.outputBuffer = new OutputBuffer(OUTPUT_BUFFER_SLOTS) {
+            @Override
+            protected void onContentsChanged(int slot) {
+                SluiceBlockEntity.this.setChanged();
+            }
+        };
+
+        // Inputs go in, buffered output comes out
+        this.itemHandlerOptional = LazyOptional.of(() -> new CombinedInvWrapper(this.inventory, this.outputBuffer));
     }
 
     /**
@@ -181,35 +248,19 @@ public class SluiceBlockEntity extends BlockEntity implements TickableBlockEntit
 
         SluiceRecipeInfo recipe = FTBSluiceRecipes.getSluiceRecipes(sluice.tank.getFluid().getFluid(), sluice.level, sluice.getBlockState().getValue(SluiceBlock.MESH), input);
 
-        List<ItemWithWeight> items = recipe.getItems();
         if (this.isCreative) {
-            return items.stream().map(e -> e.getItem().copy()).collect(Collectors.toList());
-        }
-
-        // Luck calculation
-        int additional = 0;
-        if (sluice.upgradeCache.containsKey(Upgrades.LUCK)) {
-            additional += Upgrades.LUCK.effectedChange * sluice.upgradeCache.getInt(Upgrades.LUCK);
-        }
-
-        Collections.shuffle(items); // Spin the wheel to make it a little less predictable
-        for (ItemWithWeight result : items) {
-            float number = sluice.level.getRandom().nextFloat();
-            if (number <= Mth.clamp(result.weight + (additional / 100D), 0, 1)) {
-                if (outputResults.size() >= recipe.getMaxDrops()) {
-                    break;
-                }
-
-                outputResults.add(result.item.copy());
-            }
+            return recipe.getItems().stream().map(e -> e.getItem().copy()).collect(Collectors.toList());
         }
 
+        recipe.roll(sluice.level.getRandom(), sluice.luckUpgrades, outputResults);
         return outputResults;
     }
 
-    @Override
-    public void tick() {
-        if (this.level == null || this.level.isClientSide()) {
+    /**
+     * Called by the {@link SluiceManager} when a cycle has to start or finish, or after {@link #clearCache()}.
+     */
+    void update() {
+        if (this.level == null) {
             return;
         }
 
@@ -218,38 +269,233 @@ public class SluiceBlockEntity extends BlockEntity implements TickableBlockEntit
             return;
         }
 
+        if (this.savedAt > 0) {
+            this.catchUp(this.level, state);
+        }
+
         ItemStack input = this.inventory.getStackInSlot(0);
 
-        if (this.maxProcessed < 0) {
+        if (this.getMaxProcessed() < 0) {
             this.startProcessing(this.level, input);
-        } else {
-            if (this.processed < this.maxProcessed) {
-                if (getBlockState().getValue(SluiceBlock.MESH) == MeshType.NONE) {
-                    cancelProcessing(level, input);
-                    return;
-                }
-                this.processed++;
 
-                // Finish instantly
-                if (this.isCreative) {
-                    this.finishProcessing(this.level, state, input);
-                }
-            } else {
-                this.finishProcessing(this.level, state, input);
+            // Nothing to do until an insert, fill, energy or mesh change wakes us back up. A sluice with
+            // buffered output stays awake so the manager keeps retrying it.
+            if (this.getMaxProcessed() < 0 && this.outputBuffer.isEmpty()) {
+                this.syncChanges();
+                this.manager.remove(this);
             }
+        } else if (state.getValue(SluiceBlock.MESH) == MeshType.NONE) {
+            this.cancelProcessing(this.level, input);
+        } else if (this.isCreative || this.getProcessed() >= this.getMaxProcessed()) {
+            this.finishProcessing(this.level, state, input);
 
-            if (this.processed % 4 == 0) {
-                this.setChanged();
-                this.level.sendBlockUpdated(this.worldPosition, this.getBlockState(), this.getBlockState(), Constants.BlockFlags.DEFAULT_AND_RERENDER);
-            }
+            // Chain straight into the next queued input
+            this.startProcessing(this.level, this.inventory.getStackInSlot(0));
+        }
+    }
+
+    /**
+     * Called by the {@link SluiceManager} once {@link #nextOutputRetry} comes around while output is buffered,
+     * whatever point the running cycle is at.
+     */
+    void retryOutput() {
+        BlockState state = this.getBlockState();
+        if (this.level == null || !(state.getBlock() instanceof SluiceBlock)) {
+            return;
         }
 
-        if (level.getGameTime() % 10L == 0) {
+        this.flushOutput(this.level, state.getValue(HORIZONTAL_FACING));
+        if (this.outputBuffer.isEmpty() && this.slot >= 0) {
+            this.manager.flags[this.slot] &= ~SluiceManager.BUFFERED;
+        }
+    }
+
+    private void wake() {
+        if (this.manager != null) {
+            this.manager.add(this);
+        }
+    }
+
+    /**
+     * Like {@link #setChanged()} but coalesced by the manager, for progress, fluid and power changes. The manager
+     * applies any pending mark before the chunk saves on unload. Item moves still mark the chunk straight away.
+     */
+    private void markDirty() {
+        if (this.manager != null) {
+            this.manager.markDirty(this);
+        } else {
             this.setChanged();
-            this.level.sendBlockUpdated(this.worldPosition, this.getBlockState(), this.getBlockState(), Constants.BlockFlags.DEFAULT_AND_RERENDER);
         }
     }
 
+    /**
+     * Vanilla calls this whenever the block state changes under us, which is how mesh changes arrive.
+     */
+    @Override
+    public void clearCache() {
+        super.clearCache();
+        this.invalidateTarget();
+        if (this.slot >= 0) {
+            this.manager.flags[this.slot] |= SluiceManager.RECHECK;
+        } else {
+            this.wake();
+        }
+    }
+
+    @Override
+    public void onLoad() {
+        super.onLoad();
+        if (this.level != null && !this.level.isClientSide()) {
+            this.manager = SluiceManager.get(this.level);
+            this.manager.add(this);
+
+            // Catch up from the manager's tick rather than in the middle of the chunk loading
+            if (this.savedAt > 0 && this.slot >= 0) {
+                this.manager.flags[this.slot] |= SluiceManager.RECHECK;
+            }
+        }
+    }
+
+    @Override
+    public void setRemoved() {
+        super.setRemoved();
+        if (this.manager != null) {
+            this.manager.remove(this);
+        }
+    }
+
+    @Override
+    public void onChunkUnloaded() {
+        super.onChunkUnloaded();
+        if (this.manager != null) {
+            this.manager.remove(this);
+        }
+    }
+
+    /**
+     * Sends whatever the client can see that changed since the last sync to everyone tracking the chunk. The
+     * manager only calls this every {@link SluiceManager#SYNC_INTERVAL} ticks so each player gets at most one
+     * packet per window.
+     */
+    void syncChanges() {
+        if (this.level == null) {
+            return;
+        }
+
+        int mask = 0;
+        long cycleStart = this.getCycleStart();
+        int maxProcessed = this.getMaxProcessed();
+        if (cycleStart != this.syncedCycleStart || maxProcessed != this.syncedMaxProcessed) {
+            mask |= SyncSluicePacket.CYCLE;
+        }
+
+        FluidStack fluid = this.tank.getFluid();
+        if (!fluid.isFluidEqual(this.syncedFluid)) {
+            mask |= SyncSluicePacket.FLUID;
+        } else if (fluid.getAmount() != this.syncedFluid.getAmount()) {
+            mask |= SyncSluicePacket.FLUID_AMOUNT;
+        }
+
+        ItemStack input = this.inventory.getStackInSlot(0);
+        if (!ItemStack.matches(input, this.syncedInput)) {
+            mask |= SyncSluicePacket.INPUT;
+        }
+
+        if (this.lastPowerCost != this.syncedPowerCost) {
+            mask |= SyncSluicePacket.POWER_COST;
+        }
+
+        if (mask == 0) {
+            return;
+        }
+
+        this.syncedCycleStart = cycleStart;
+        this.syncedMaxProcessed = maxProcessed;
+        this.syncedFluid = fluid.copy();
+        this.syncedInput = input.copy();
+        this.syncedPowerCost = this.lastPowerCost;
+
+        SluiceNet.MAIN.send(PacketDistributor.TRACKING_CHUNK.with(() -> this.level.getChunkAt(this.worldPosition)), new SyncSluicePacket(this, mask));
+    }
+
+    /**
+     * Applies a delta from the server. The renderer draws these every frame so no chunk re-render is needed.
+     */
+    @OnlyIn(Dist.CLIENT)
+    public void handleSync(SyncSluicePacket packet) {
+        if ((packet.mask & SyncSluicePacket.CYCLE) != 0) {
+            this.predictCycle(packet.cycleStart, packet.maxProcessed);
+        }
+
+        if ((packet.mask & SyncSluicePacket.FLUID) != 0) {
+            this.tank.setFluid(packet.fluid);
+        } else if ((packet.mask & SyncSluicePacket.FLUID_AMOUNT) != 0 && !this.tank.isEmpty()) {
+            this.tank.getFluid().setAmount(packet.fluidAmount);
+        }
+
+        if ((packet.mask & SyncSluicePacket.INPUT) != 0) {
+            this.inventory.setStackInSlot(0, packet.input);
+        }
+
+        if ((packet.mask & SyncSluicePacket.POWER_COST) != 0) {
+            this.lastPowerCost = packet.powerCost;
+        }
+    }
+
+    @Override
+    public void predictCycle(long startTime, int duration) {
+        this.cycleStart = startTime;
+        this.maxProcessed = duration;
+        this.processed = 0;
+    }
+
+    /**
+     * The server advances {@link #processed} by one every tick of a cycle, so the start time never moves
+     * while a cycle runs and is all the client needs to be told.
+     */
+    public long getCycleStart() {
+        if (this.level == null || this.getMaxProcessed() < 0) {
+            return 0;
+        }
+
+        return this.level.isClientSide() ? this.cycleStart : this.level.getGameTime() - this.getProcessed();
+    }
+
+    /**
+     * @return the progress of the current cycle, worked out from the game time on the client
+     */
+    public int getProcessed() {
+        if (this.level != null && this.level.isClientSide() && this.maxProcessed > 0) {
+            return (int) Mth.clamp(this.level.getGameTime() - this.cycleStart, 0, this.maxProcessed);
+        }
+
+        return this.slot >= 0 ? this.manager.processed[this.slot] : this.processed;
+    }
+
+    public int getMaxProcessed() {
+        return this.slot >= 0 ? this.manager.maxProcessed[this.slot] : this.maxProcessed;
+    }
+
+    private int getFluidUsage() {
+        return this.slot >= 0 ? this.manager.fluidUsage[this.slot] : this.fluidUsage;
+    }
+
+    private void setCycle(int processed, int maxProcessed, int fluidUsage) {
+        if (this.slot >= 0) {
+            this.manager.processed[this.slot] = processed;
+            this.manager.maxProcessed[this.slot] = maxProcessed;
+            this.manager.fluidUsage[this.slot] = fluidUsage;
+        } else {
+            this.processed = processed;
+            this.maxProcessed = maxProcessed;
+            this.fluidUsage = fluidUsage;
+        }
+    }
+
+    boolean isCreative() {
+        return this.isCreative;
+    }
+
     /**
      * Starts the processing process as long as we have enough fluid and an item in the inventory.
      * We also push a block update to make sure the TES is up to date.
@@ -277,8 +523,7 @@ public class SluiceBlockEntity extends BlockEntity implements TickableBlockEntit
 
         SluiceRecipeInfo recipe = FTBSluiceRecipes.getSluiceRecipes(this.tank.getFluid().getFluid(), level, this.getBlockState().getValue(SluiceBlock.MESH), stack);
 
-        double baseFluidUsage = recipe.getFluidUsed() * this.properties.config.fluidMod.get();
-        int fluidRequirement = Math.max(40, (int) Math.round(baseFluidUsage - (baseFluidUsage * (computeEffectModifier(Upgrades.CONSUMPTION) / 100f))));
+        int fluidRequirement = this.computeFluidUsage(recipe);
         if (this.tank.getFluidAmount() < fluidRequirement) {
             return;
         }
@@ -289,14 +534,166 @@ public class SluiceBlockEntity extends BlockEntity implements TickableBlockEntit
             return;
         }
 
-        this.processed = 0;
+        // Wait for the buffered output to drain rather than dropping whatever the next cycle makes
+        if (this.outputRoom(level, recipe, 1) <= 0) {
+            return;
+        }
+
+        this.batch = this.isCreative ? 1 : this.computeBatch(level, recipe, stack.getCount(), fluidRequirement, this.isAdvanced ? this.getPowerCost() : 0);
+        this.setCycle(0, this.computeProcessingTime(recipe), fluidRequirement * this.batch);
+
+        this.markDirty();
+    }
+
+    /**
+     * @return how many of the queued inputs the next cycle can take on, at least one
+     */
+    private int computeBatch(Level level, SluiceRecipeInfo recipe, int inputs, int fluidRequirement, int powerCost) {
+        int batch = Math.min(this.properties.settings().batchSize, inputs);
+        batch = Math.min(batch, this.tank.getFluidAmount() / fluidRequirement);
+        if (powerCost > 0) {
+            batch = Math.min(batch, this.energy.getEnergyStored() / powerCost);
+        }
+
+        batch = (int) this.outputRoom(level, recipe, batch);
+        return Math.max(batch, 1);
+    }
+
+    /**
+     * How many operations of the recipe are sure to fit in the output buffer's free slots even if the target
+     * inventory takes none of it. Partly filled slots aren't counted, so this errs on the low side. Without a
+     * target inventory the output is dropped like it always was and there's nothing to limit.
+     *
+     * @return at most {@code limit}
+     */
+    private long outputRoom(Level level, SluiceRecipeInfo recipe, long limit) {
+        if (!this.properties.settings().allowsIO || this.seekNearestInventory(level).map(e -> e.getSlots() == 0).orElse(true)) {
+            return limit;
+        }
+
+        int free = this.outputBuffer.freeSlots();
+        long low = 0;
+        long high = limit;
+        while (low < high) {
+            long mid = low + (high - low + 1) / 2;
+            if (this.slotsNeeded(recipe, mid) <= free) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+
+        return low;
+    }
+
+    /**
+     * The most buffer slots {@code operations} rolls can fill. Every drop is at most a stack and no item comes
+     * up more than once per roll, creative sluices get every item every time.
+     */
+    private long slotsNeeded(SluiceRecipeInfo recipe, long operations) {
+        long byItems = 0;
+        for (ItemWithWeight item : recipe.getItems()) {
+            ItemStack stack = item.getItem();
+            byItems += (operations * stack.getCount() + stack.getMaxStackSize() - 1) / stack.getMaxStackSize();
+        }
+
+        return this.isCreative ? byItems : Math.min(byItems, operations * Math.max(recipe.getMaxDrops(), 0));
+    }
+
+    /**
+     * Rolls {@code operations} inputs at once and ejects the totals in full stacks.
+     */
+    private void ejectBulk(Level level, Direction direction, SluiceRecipeInfo recipe, long operations) {
+        long[] counts = recipe.rollBulk(level.getRandom(), this.luckUpgrades, operations);
+        for (int i = 0; i < counts.length; i++) {
+            ItemStack item = recipe.getItems().get(i).getItem();
+            // Every drop is a copy of the result stack, which can hold more than one item
+            for (long count = counts[i] * item.getCount(); count > 0; ) {
+                ItemStack stack = item.copy();
+                stack.setCount((int) Math.min(count, item.getMaxStackSize()));
+                count -= stack.getCount();
+                this.ejectItem(level, direction, stack);
+            }
+        }
+    }
+
+    private int computeFluidUsage(SluiceRecipeInfo recipe) {
+        double baseFluidUsage = recipe.getFluidUsed() * this.properties.settings().fluidMod;
+        return Math.max(40, (int) Math.round(baseFluidUsage - (baseFluidUsage * (this.consumptionModifier / 100f))));
+    }
+
+    private int computeProcessingTime(SluiceRecipeInfo recipe) {
+        double baseProcessingTime = recipe.getProcessingTime() * this.properties.settings().timeMod;
+        return Math.max(1, (int) Math.round(baseProcessingTime - (baseProcessingTime * (this.speedModifier / 100f))));
+    }
+
+    /**
+     * Works out how many cycles would have finished while the chunk was unloaded and runs them all at once.
+     * A cycle takes its processing time plus the tick it finishes and starts the next one on and handles up
+     * to a batch of inputs. Every input needs its fluid and power, so whichever runs out first decides the count.
+     */
+    private void catchUp(Level level, BlockState state) {
+        long elapsed = Math.min(level.getGameTime() - this.savedAt, SluiceConfig.GENERAL.get().maxOfflineTicks);
+        this.savedAt = 0;
+
+        ItemStack input = this.inventory.getStackInSlot(0);
+        MeshType mesh = state.getValue(SluiceBlock.MESH);
+        if (elapsed <= 0 || this.isCreative || input.isEmpty() || mesh == MeshType.NONE || this.tank.isEmpty()) {
+            return;
+        }
+
+        SluiceRecipeInfo recipe = FTBSluiceRecipes.getSluiceRecipes(this.tank.getFluid().getFluid(), level, mesh, input);
+        if (recipe.getItems().isEmpty()) {
+            return;
+        }
+
+        int maxProcessed = this.computeProcessingTime(recipe);
+        int fluidUsage = this.computeFluidUsage(recipe);
+        int powerCost = this.isAdvanced ? this.computePowerCost() : 0;
+
+        // Time since the running cycle, if any, started
+        long time = elapsed + Math.max(this.getProcessed(), 0);
+        long timeLimit = time / (maxProcessed + 1) * this.properties.settings().batchSize;
+        long cycles = Math.min(timeLimit, SluiceConfig.GENERAL.get().maxOfflineCycles);
+        cycles = Math.min(cycles, input.getCount());
+        cycles = Math.min(cycles, this.tank.getFluidAmount() / fluidUsage);
+        if (powerCost > 0) {
+            cycles = Math.min(cycles, this.energy.getEnergyStored() / powerCost);
+        }
+
+        // Run them in chunks the buffer is sure to hold, and leave the rest of the inputs alone once it's full
+        Direction direction = state.getValue(HORIZONTAL_FACING);
+        long done = 0;
+        while (done < cycles) {
+            long chunk = this.outputRoom(level, recipe, cycles - done);
+            if (chunk <= 0) {
+                break;
+            }
+
+            ItemStack remaining = this.inventory.getStackInSlot(0).copy();
+            remaining.shrink((int) chunk);
+            this.inventory.setStackInSlot(0, remaining);
+            this.tank.internalDrain((int) (chunk * fluidUsage), IFluidHandler.FluidAction.EXECUTE);
+            if (powerCost > 0) {
+                this.energy.consumeEnergy((int) (chunk * powerCost), false);
+            }
+
+            this.ejectBulk(level, direction, recipe, chunk);
+            done += chunk;
+        }
 
-        double baseProcessingTime = recipe.getProcessingTime() * this.properties.config.timeMod.get();
-        this.maxProcessed = Math.max(1, (int) Math.round(baseProcessingTime - (baseProcessingTime * (computeEffectModifier(Upgrades.SPEED) / 100f))));
-        this.fluidUsage = fluidRequirement;
+        // Pick the last cycle up where it would be now, or go idle if we ran out of something
+        long leftover = time - time / (maxProcessed + 1) * (maxProcessed + 1);
+        ItemStack remaining = this.inventory.getStackInSlot(0);
+        if (done == timeLimit && !remaining.isEmpty() && this.outputRoom(level, recipe, 1) > 0
+                && this.tank.getFluidAmount() >= fluidUsage && this.energy.getEnergyStored() >= powerCost) {
+            this.batch = this.computeBatch(level, recipe, remaining.getCount(), fluidUsage, powerCost);
+            this.setCycle((int) Math.min(leftover, maxProcessed), maxProcessed, fluidUsage * this.batch);
+        } else {
+            this.setCycle(0, -1, -1);
+        }
 
         this.setChanged();
-        level.sendBlockUpdated(this.worldPosition, this.getBlockState(), this.getBlockState(), Constants.BlockFlags.DEFAULT_AND_RERENDER);
     }
 
     /**
@@ -305,54 +702,51 @@ public class SluiceBlockEntity extends BlockEntity implements TickableBlockEntit
      * @param itemStack the input item from the start of the process.
      */
     private void finishProcessing(@Nonnull Level level, BlockState state, ItemStack itemStack) {
-        this.processed = 0;
-        this.maxProcessed = -1;
-
-        this.getRandomResult(this, itemStack)
-                .forEach(e -> this.ejectItem(level, state.getValue(HORIZONTAL_FACING), e));
+        int fluidUsage = this.getFluidUsage();
+        int batch = Math.min(this.batch, itemStack.getCount());
+        this.setCycle(0, -1, -1);
+        this.batch = 1;
+
+        if (batch > 1) {
+            // One lookup and one aggregated roll for the whole batch
+            SluiceRecipeInfo recipe = FTBSluiceRecipes.getSluiceRecipes(this.tank.getFluid().getFluid(), level, state.getValue(SluiceBlock.MESH), itemStack);
+            this.ejectBulk(level, state.getValue(HORIZONTAL_FACING), recipe, batch);
+        } else {
+            this.getRandomResult(this, itemStack)
+                    .forEach(e -> this.ejectItem(level, state.getValue(HORIZONTAL_FACING), e));
+        }
 
-        this.inventory.setStackInSlot(0, ItemStack.EMPTY);
+        this.inventory.internalExtract(0, Math.max(batch, 1), false);
 
         if (!this.isCreative) {
-            this.tank.internalDrain(this.fluidUsage, IFluidHandler.FluidAction.EXECUTE);
+            this.tank.internalDrain(fluidUsage, IFluidHandler.FluidAction.EXECUTE);
         }
 
-        this.fluidUsage = -1;
-
         if (this.isAdvanced && !this.isCreative) {
-            this.energy.consumeEnergy(computePowerCost(), false);
+            this.energy.consumeEnergy((int) Math.min((long) this.getPowerCost() * Math.max(batch, 1), Integer.MAX_VALUE), false);
         }
 
         this.setChanged();
-        level.sendBlockUpdated(this.worldPosition, this.getBlockState(), this.getBlockState(), Constants.BlockFlags.DEFAULT_AND_RERENDER);
     }
 
     private void cancelProcessing(Level level, ItemStack stack) {
         this.ejectItem(level, this.getBlockState().getValue(HORIZONTAL_FACING), stack);
         this.inventory.setStackInSlot(0, ItemStack.EMPTY);
-        this.processed = 0;
-        this.maxProcessed = -1;
-        this.fluidUsage = -1;
+        this.setCycle(0, -1, -1);
         this.setChanged();
-        level.sendBlockUpdated(this.worldPosition, this.getBlockState(), this.getBlockState(), Constants.BlockFlags.DEFAULT_AND_RERENDER);
     }
 
     private int computePowerCost() {
-        int cost = this.properties.config.costPerUse.get();
-        if (!upgradeCache.isEmpty()) {
-            int sum = 0;
-            for (int i : upgradeCache.values()) {
-                sum += i;
-            }
-
-            cost = (int) Math.min(Math.pow(SluiceConfig.GENERAL.exponentialCostBaseN.get(), sum) * cost, Integer.MAX_VALUE);
-        }
+        int cost = this.properties.settings().powerCost(this.totalUpgrades);
         this.lastPowerCost = cost;
+        if (this.slot >= 0) {
+            this.manager.powerCost[this.slot] = cost;
+        }
         return cost;
     }
 
-    private int computeEffectModifier(Upgrades upgrade) {
-        return upgradeCache.getOrDefault(upgrade, 0) * upgrade.effectedChange;
+    private int getPowerCost() {
+        return this.slot >= 0 ? this.manager.powerCost[this.slot] : this.computePowerCost();
     }
 
     @Override
@@ -361,12 +755,18 @@ public class SluiceBlockEntity extends BlockEntity implements TickableBlockEntit
         this.tank.writeToNBT(fluidTag);
 
         compound.put("Inventory", this.inventory.serializeNBT());
+        compound.put("Output", this.outputBuffer.serializeNBT());
         compound.put("Fluid", fluidTag);
-        compound.putInt("Processed", this.processed);
-        compound.putInt("MaxProcessed", this.maxProcessed);
-        compound.putInt("FluidUsage", this.fluidUsage);
+        compound.putInt("Processed", this.getProcessed());
+        compound.putInt("MaxProcessed", this.getMaxProcessed());
+        compound.putInt("FluidUsage", this.getFluidUsage());
+        compound.putInt("Batch", this.batch);
         compound.putInt("LastPowerCost", this.lastPowerCost);
 
+        if (this.level != null && !this.level.isClientSide()) {
+            compound.putLong("SavedAt", this.level.getGameTime());
+        }
+
         if (this.isCreative) {
             compound.putBoolean("isCreative", true);
         }
@@ -385,10 +785,13 @@ public class SluiceBlockEntity extends BlockEntity implements TickableBlockEntit
         super.load(state, compound);
 
         this.inventory.deserializeNBT(compound.getCompound("Inventory"));
-        this.processed = compound.getInt("Processed");
-        this.maxProcessed = compound.getInt("MaxProcessed");
-        this.fluidUsage = compound.getInt("FluidUsage");
+        if (compound.contains("Output")) {
+            this.outputBuffer.deserializeNBT(compound.getCompound("Output"));
+        }
+        this.setCycle(compound.getInt("Processed"), compound.getInt("MaxProcessed"), compound.getInt("FluidUsage"));
         this.lastPowerCost = compound.getInt("LastPowerCost");
+        this.savedAt = compound.getLong("SavedAt");
+        this.batch = Math.max(compound.getInt("Batch"), 1);
 
         if (compound.contains("isCreative")) {
             this.isCreative = compound.getBoolean("isCreative");
@@ -413,18 +816,32 @@ public class SluiceBlockEntity extends BlockEntity implements TickableBlockEntit
                 continue;
             }
 
-            SluiceBlockEntity.this.upgradeCache.put(((UpgradeItem) stack.getItem()).getUpgrade(), Math.min(stack.getCount(), 18));
+            SluiceBlockEntity.this.upgradeCache.put(((UpgradeItem) stack.getItem()).getUpgrade(), Math.min(stack.getCount(), Upgrades.MAX_COUNT));
+        }
+
+        int total = 0;
+        for (int count : this.upgradeCache.values()) {
+            total += count;
+        }
+
+        this.totalUpgrades = total;
+        this.luckUpgrades = this.upgradeCache.getInt(Upgrades.LUCK);
+        this.speedModifier = this.upgradeCache.getInt(Upgrades.SPEED) * Upgrades.SPEED.effectedChange;
+        this.consumptionModifier = this.upgradeCache.getInt(Upgrades.CONSUMPTION) * Upgrades.CONSUMPTION.effectedChange;
+
+        if (this.slot >= 0) {
+            this.computePowerCost();
         }
     }
 
     @Nonnull
     @Override
     public <T> LazyOptional<T> getCapability(@Nonnull Capability<T> cap, @Nullable Direction side) {
-        if (cap == CapabilityItemHandler.ITEM_HANDLER_CAPABILITY && this.properties.config.allowsIO.get()) {
-            return this.inventoryOptional.cast();
+        if (cap == CapabilityItemHandler.ITEM_HANDLER_CAPABILITY && this.properties.settings().allowsIO) {
+            return this.itemHandlerOptional.cast();
         }
 
-        if (cap == CapabilityFluidHandler.FLUID_HANDLER_CAPABILITY && this.properties.config.allowsTank.get()) {
+        if (cap == CapabilityFluidHandler.FLUID_HANDLER_CAPABILITY && this.properties.settings().allowsTank) {
             return this.fluidOptional.cast();
         }
 
@@ -436,16 +853,63 @@ public class SluiceBlockEntity extends BlockEntity implements TickableBlockEntit
     }
 
     private void ejectItem(Level w, Direction direction, ItemStack stack) {
-        if (this.properties.config.allowsIO.get()) {
+        if (this.properties.settings().allowsIO) {
             // Find the closest inventory to the block.
             IItemHandler handler = this.seekNearestInventory(w).orElseGet(EmptyHandler::new);
 
             // Empty handler does not have slots and is thus very simple to check against.
             if (handler.getSlots() != 0) {
-                stack = ItemHandlerHelper.insertItemStacked(handler, stack, false);
+                // Anything already waiting goes first
+                if (this.outputBuffer.isEmpty()) {
+                    stack = ItemHandlerHelper.insertItemStacked(handler, stack, false);
+                }
+
+                if (!stack.isEmpty()) {
+                    if (this.outputBuffer.isEmpty()) {
+                        this.nextOutputRetry = w.getGameTime() + this.outputRetryDelay;
+                    }
+
+                    stack = this.outputBuffer.internalInsert(stack);
+                    if (this.slot >= 0) {
+                        this.manager.flags[this.slot] |= SluiceManager.BUFFERED;
+                    }
+                }
             }
         }
 
+        this.dropItem(w, direction, stack);
+    }
+
+    /**
+     * Retries pushing the buffered output into the target inventory. Every attempt that moves nothing doubles
+     * the wait before the next one. If the inventory is gone the buffer is dropped like any other output.
+     */
+    private void flushOutput(Level level, Direction direction) {
+        IItemHandler handler = this.seekNearestInventory(level).orElseGet(EmptyHandler::new);
+
+        boolean moved = false;
+        for (int i = 0; i < this.outputBuffer.getSlots(); i++) {
+            ItemStack stack = this.outputBuffer.getStackInSlot(i);
+            if (stack.isEmpty()) {
+                continue;
+            }
+
+            ItemStack remaining = handler.getSlots() == 0 ? ItemStack.EMPTY : ItemHandlerHelper.insertItemStacked(handler, stack.copy(), false);
+            if (remaining.getCount() != stack.getCount()) {
+                if (handler.getSlots() == 0) {
+                    this.dropItem(level, direction, stack.copy());
+                }
+
+                this.outputBuffer.setStackInSlot(i, remaining);
+                moved = true;
+            }
+        }
+
+        this.outputRetryDelay = moved ? OUTPUT_RETRY_MIN : Math.min(this.outputRetryDelay * 2, OUTPUT_RETRY_MAX);
+        this.nextOutputRetry = level.getGameTime() + this.outputRetryDelay;
+    }
+
+    private void dropItem(Level w, Direction direction, ItemStack stack) {
         if (!stack.isEmpty()) {
             BlockPos pos = this.worldPosition.relative(direction);
 
@@ -459,21 +923,51 @@ public class SluiceBlockEntity extends BlockEntity implements TickableBlockEntit
         }
     }
 
+    /**
+     * Forgets the resolved target inventory so the next output looks it up again. Called when the block in
+     * front of the funnel changes and when the target's capability is invalidated.
+     */
+    public void invalidateTarget() {
+        this.targetInventory = null;
+        // Something new might have room for the buffered output
+        this.nextOutputRetry = 0;
+        this.outputRetryDelay = OUTPUT_RETRY_MIN;
+    }
+
     /**
      * @param level level to find the inventory from
      * @return A valid IItemHandler or a empty optional
      */
     private LazyOptional<IItemHandler> seekNearestInventory(Level level) {
+        if (this.targetInventory != null) {
+            return this.targetInventory;
+        }
+
+        this.targetInventory = LazyOptional.empty();
+
         BlockPos pos = this.getBlockPos().relative(this.getBlockState().getValue(HORIZONTAL_FACING), 2);
         BlockEntity blockEntity = level.getBlockEntity(pos);
         if (blockEntity != null && !(blockEntity instanceof SluiceBlockEntity)) {
             LazyOptional<IItemHandler> capability = blockEntity.getCapability(CapabilityItemHandler.ITEM_HANDLER_CAPABILITY);
             if (capability.isPresent()) {
-                return capability;
+                if (this.subscribedTarget != capability) {
+                    this.subscribedTarget = capability;
+                    capability.addListener(e -> {
+                        if (this.subscribedTarget == e) {
+                            this.subscribedTarget = null;
+                        }
+
+                        if (this.targetInventory == e) {
+                            this.invalidateTarget();
+                        }
+                    });
+                }
+
+                this.targetInventory = capability;
             }
         }
 
-        return LazyOptional.empty();
+        return this.targetInventory;
     }
 
     @Override
@@ -490,6 +984,7 @@ public class SluiceBlockEntity extends BlockEntity implements TickableBlockEntit
     @Override
     public void handleUpdateTag(BlockState state, CompoundTag tag) {
         this.load(state, tag);
+        this.predictFromLoadedProgress();
     }
 
     @Nullable
@@ -501,6 +996,13 @@ public class SluiceBlockEntity extends BlockEntity implements TickableBlockEntit
     @Override
     public void onDataPacket(Connection net, ClientboundBlockEntityDataPacket pkt) {
         this.load(this.getBlockState(), pkt.getTag());
+        this.predictFromLoadedProgress();
+    }
+
+    private void predictFromLoadedProgress() {
+        if (this.level != null) {
+            this.cycleStart = this.level.getGameTime() - this.processed;
+        }
     }
 
     @Override
@@ -542,4 +1044,14 @@ public class SluiceBlockEntity extends BlockEntity implements TickableBlockEntit
             super(SluiceBlockEntities.EMPOWERED_SLUICE.get(), SluiceProperties.EMPOWERED);
         }
     }
+
+    /**
+     * Runs a whole row of sluices in one block. Each cycle processes up to the configured batch size worth of
+     * inputs from the shared tank, energy buffer and output buffer, see {@link #computeBatch}.
+     */
+    public static class ControllerSluiceBlockEntity extends SluiceBlockEntity {
+        public ControllerSluiceBlockEntity() {
+            super(SluiceBlockEntities.CONTROLLER_SLUICE.get(), SluiceProperties.CONTROLLER);
+        }
+    }
 }
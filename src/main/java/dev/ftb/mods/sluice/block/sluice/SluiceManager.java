@@ -0,0 +1,251 @@
+package dev.ftb.mods.sluice.block.sluice;
+
+import dev.ftb.mods.sluice.SluiceConfig;
+import it.unimi.dsi.fastutil.objects.ReferenceOpenHashSet;
+import net.minecraft.core.BlockPos;
+import net.minecraft.world.level.ChunkPos;
+import net.minecraft.world.level.Level;
+import net.minecraft.world.level.chunk.ChunkAccess;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+/**
+ * Owns the processing state of every active sluice in a level and advances them all in one loop per tick.
+ * The state lives in parallel primitive arrays indexed by a slot that the sluice remembers, see
+ * {@link SluiceBlockEntity#slot}. A sluice only calls back into its block entity when a cycle has to start,
+ * finish or be re-checked. Idle sluices are not in here at all.
+ * <p>
+ * Frequent changes that only need saving eventually, like progress, fluid and power, are collected here too and
+ * turned into a single chunk save mark per sluice every {@link SluiceConfig.CategoryGeneral#saveInterval} ticks.
+ */
+public class SluiceManager {
+    private static final Map<Level, SluiceManager> MANAGERS = new WeakHashMap<>();
+
+    // How often the active sluices are saved and synced to clients
+    public static final int SYNC_INTERVAL = 5;
+
+    // Finishes a cycle the tick after it starts
+    static final byte CREATIVE = 1;
+    // Something outside the loop changed, call back into the block entity next tick
+    static final byte RECHECK = 1 << 1;
+    // Holds output the target inventory had no room for, retried once its nextOutputRetry comes around
+    static final byte BUFFERED = 1 << 2;
+
+    private final Level level;
+    private final Set<SluiceBlockEntity> pendingRemove = new ReferenceOpenHashSet<>();
+    private final Set<SluiceBlockEntity> dirty = new ReferenceOpenHashSet<>();
+    private boolean ticking = false;
+    private int size = 0;
+
+    SluiceBlockEntity[] sluices = new SluiceBlockEntity[64];
+    int[] processed = new int[64];
+    int[] maxProcessed = new int[64];
+    int[] fluidUsage = new int[64];
+    int[] powerCost = new int[64];
+    byte[] flags = new byte[64];
+
+    private SluiceManager(Level level) {
+        this.level = level;
+    }
+
+    public static SluiceManager get(Level level) {
+        return MANAGERS.computeIfAbsent(level, SluiceManager::new);
+    }
+
+    public static void tick(Level level) {
+        SluiceManager manager = MANAGERS.get(level);
+        if (manager != null) {
+            manager.tick();
+        }
+    }
+
+    public static void unload(Level level) {
+        MANAGERS.remove(level);
+    }
+
+    /**
+     * Marks everything still waiting for the save interval right away, for when the server is about to stop.
+     */
+    public static void saveAll() {
+        for (SluiceManager manager : MANAGERS.values()) {
+            manager.flushDirty();
+        }
+    }
+
+    /**
+     * Marks the chunk for saving if anything in it is still waiting for the save interval or in the middle of a
+     * cycle. Has to run before the chunk is saved, {@link SluiceBlockEntity#onChunkUnloaded()} only comes after
+     * that. The chunk is marked directly as it may already be gone from the level's chunk map, which would make
+     * {@link SluiceBlockEntity#setChanged()} quietly do nothing.
+     */
+    public static void chunkUnloaded(Level level, ChunkAccess chunk) {
+        SluiceManager manager = MANAGERS.get(level);
+        if (manager != null && manager.flushChunk(chunk.getPos().toLong())) {
+            chunk.setUnsaved(true);
+        }
+    }
+
+    /**
+     * Marks the sluice's chunk for saving at the end of the current save interval, or right before the chunk
+     * unloads if that comes first.
+     */
+    void markDirty(SluiceBlockEntity sluice) {
+        this.dirty.add(sluice);
+    }
+
+    /**
+     * Starts ticking the sluice, copying its parked state into the arrays. Does nothing if it is already active.
+     */
+    void add(SluiceBlockEntity sluice) {
+        if (sluice.isRemoved() || this.pendingRemove.remove(sluice) || sluice.slot >= 0) {
+            return;
+        }
+
+        if (this.size == this.sluices.length) {
+            int capacity = this.size * 2;
+            this.sluices = Arrays.copyOf(this.sluices, capacity);
+            this.processed = Arrays.copyOf(this.processed, capacity);
+            this.maxProcessed = Arrays.copyOf(this.maxProcessed, capacity);
+            this.fluidUsage = Arrays.copyOf(this.fluidUsage, capacity);
+            this.powerCost = Arrays.copyOf(this.powerCost, capacity);
+            this.flags = Arrays.copyOf(this.flags, capacity);
+        }
+
+        int i = this.size++;
+        this.sluices[i] = sluice;
+        this.processed[i] = sluice.processed;
+        this.maxProcessed[i] = sluice.maxProcessed;
+        this.fluidUsage[i] = sluice.fluidUsage;
+        this.powerCost[i] = sluice.lastPowerCost;
+        this.flags[i] = (byte) ((sluice.isCreative() ? CREATIVE : 0) | (sluice.outputBuffer.isEmpty() ? 0 : BUFFERED));
+        sluice.slot = i;
+    }
+
+    /**
+     * Stops ticking the sluice and parks its state back in the block entity. Removals requested while the loop
+     * is running are applied once it's done so slots don't move under it.
+     */
+    void remove(SluiceBlockEntity sluice) {
+        if (sluice.slot < 0) {
+            return;
+        }
+
+        if (this.ticking) {
+            this.pendingRemove.add(sluice);
+            return;
+        }
+
+        int i = sluice.slot;
+        sluice.processed = this.processed[i];
+        sluice.maxProcessed = this.maxProcessed[i];
+        sluice.fluidUsage = this.fluidUsage[i];
+        sluice.slot = -1;
+
+        // Swap the last sluice into the hole
+        int last = --this.size;
+        if (i != last) {
+            this.sluices[i] = this.sluices[last];
+            this.processed[i] = this.processed[last];
+            this.maxProcessed[i] = this.maxProcessed[last];
+            this.fluidUsage[i] = this.fluidUsage[last];
+            this.powerCost[i] = this.powerCost[last];
+            this.flags[i] = this.flags[last];
+            this.sluices[i].slot = i;
+        }
+
+        this.sluices[last] = null;
+    }
+
+    private void tick() {
+        this.ticking = true;
+        long time = this.level.getGameTime();
+
+        // Walk backwards so sluices woken during the loop, which are appended, wait for the next tick
+        for (int i = this.size - 1; i >= 0; i--) {
+            if ((this.flags[i] & BUFFERED) != 0 && time >= this.sluices[i].nextOutputRetry) {
+                this.sluices[i].retryOutput();
+            }
+
+            byte flags = this.flags[i];
+            if ((flags & RECHECK) == 0 && this.processed[i] < this.maxProcessed[i]) {
+                this.processed[i]++;
+                if ((flags & CREATIVE) == 0) {
+                    continue;
+                }
+            }
+
+            SluiceBlockEntity sluice = this.sluices[i];
+            if (!this.pendingRemove.isEmpty() && this.pendingRemove.contains(sluice)) {
+                continue;
+            }
+
+            this.flags[i] = (byte) (flags & ~RECHECK);
+            sluice.update();
+        }
+
+        if (time % SYNC_INTERVAL == 0) {
+            for (int i = 0; i < this.size; i++) {
+                this.sluices[i].syncChanges();
+            }
+        }
+
+        if (time % SluiceConfig.GENERAL.get().saveInterval == 0) {
+            // A running cycle has moved its progress along since the last interval
+            for (int i = 0; i < this.size; i++) {
+                if (this.maxProcessed[i] >= 0 && (this.flags[i] & CREATIVE) == 0) {
+                    this.dirty.add(this.sluices[i]);
+                }
+            }
+
+            this.flushDirty();
+        }
+
+        this.ticking = false;
+
+        if (!this.pendingRemove.isEmpty()) {
+            for (SluiceBlockEntity sluice : this.pendingRemove) {
+                this.remove(sluice);
+            }
+
+            this.pendingRemove.clear();
+        }
+    }
+
+    /**
+     * Forgets the pending marks of every sluice in the chunk.
+     *
+     * @return if the chunk needs saving for any of its sluices
+     */
+    private boolean flushChunk(long chunk) {
+        boolean unsaved = this.dirty.removeIf(sluice -> chunkOf(sluice) == chunk);
+        for (int i = 0; i < this.size && !unsaved; i++) {
+            if (this.maxProcessed[i] >= 0 && (this.flags[i] & CREATIVE) == 0 && chunkOf(this.sluices[i]) == chunk) {
+                unsaved = true;
+            }
+        }
+
+        return unsaved;
+    }
+
+    private static long chunkOf(SluiceBlockEntity sluice) {
+        BlockPos pos = sluice.getBlockPos();
+        return ChunkPos.asLong(pos.getX() >> 4, pos.getZ() >> 4);
+    }
+
+    private void flushDirty() {
+        if (this.dirty.isEmpty()) {
+            return;
+        }
+
+        for (SluiceBlockEntity sluice : this.dirty) {
+            if (!sluice.isRemoved()) {
+                sluice.setChanged();
+            }
+        }
+
+        this.dirty.clear();
+    }
+}
@@ -9,11 +9,19 @@ public enum SluiceProperties {
     IRON(SLUICES.IRON),
     DIAMOND(SLUICES.DIAMOND),
     NETHERITE(SLUICES.NETHERITE),
-    EMPOWERED(SLUICES.EMPOWERED),;
+    EMPOWERED(SLUICES.EMPOWERED),
+    CONTROLLER(SLUICES.CONTROLLER),;
 
     public final CategorySluice config;
 
     SluiceProperties(CategorySluice config) {
         this.config = config;
     }
+
+    /**
+     * @return the values the config last loaded with
+     */
+    public CategorySluice.Snapshot settings() {
+        return this.config.get();
+    }
 }
@@ -39,8 +39,9 @@ public class SluiceRenderer extends TileEntityRendererAnimation<SluiceBlockEntit
             return;
         }
 
-        int progress = (te.processed * 100) / te.maxProcessed;
-        float offset = te.processed < 0 ? 0 : progress;
+        int processed = te.getProcessed();
+        int progress = (processed * 100) / te.getMaxProcessed();
+        float offset = processed < 0 ? 0 : progress;
 
         float v = te.getBlockState().getValue(HORIZONTAL_FACING).toYRot();
         matrix.pushPose();
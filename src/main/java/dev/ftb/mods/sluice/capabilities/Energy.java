@@ -20,7 +20,7 @@ public class Energy extends EnergyStorage implements INBTSerializable<CompoundTa
     public int receiveEnergy(int maxReceive, boolean simulate) {
         int energyReceived = Math.min(this.capacity - this.energy, Math.min(this.maxReceive, maxReceive));
 
-        if (!simulate) {
+        if (!simulate && energyReceived > 0) {
             this.energy += energyReceived;
             this.onEnergyChange.accept(this);
         }
@@ -0,0 +1,62 @@
+package dev.ftb.mods.sluice.capabilities;
+
+import net.minecraft.world.item.ItemStack;
+import net.minecraftforge.items.ItemStackHandler;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Holds output that couldn't be pushed into the target inventory yet. Nothing can be inserted from the
+ * outside, only pulled out, and internal inserts top up matching stacks before taking an empty slot.
+ */
+public class OutputBuffer extends ItemStackHandler {
+    public OutputBuffer(int size) {
+        super(size);
+    }
+
+    /**
+     * @return whatever didn't fit
+     */
+    @NotNull
+    public ItemStack internalInsert(@NotNull ItemStack stack) {
+        for (int i = 0; i < this.getSlots() && !stack.isEmpty(); i++) {
+            if (!this.getStackInSlot(i).isEmpty()) {
+                stack = super.insertItem(i, stack, false);
+            }
+        }
+
+        for (int i = 0; i < this.getSlots() && !stack.isEmpty(); i++) {
+            if (this.getStackInSlot(i).isEmpty()) {
+                stack = super.insertItem(i, stack, false);
+            }
+        }
+
+        return stack;
+    }
+
+    public int freeSlots() {
+        int free = 0;
+        for (int i = 0; i < this.getSlots(); i++) {
+            if (this.getStackInSlot(i).isEmpty()) {
+                free++;
+            }
+        }
+
+        return free;
+    }
+
+    public boolean isEmpty() {
+        for (int i = 0; i < this.getSlots(); i++) {
+            if (!this.getStackInSlot(i).isEmpty()) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    @NotNull
+    @Override
+    public ItemStack insertItem(int slot, @NotNull ItemStack stack, boolean simulate) {
+        return stack;
+    }
+}
@@ -117,7 +117,7 @@ public class TheOneProbeProvider implements IProbeInfoProvider, Function<ITheOne
             iProbeInfo.horizontal().item(itemStack).vertical().padding(0, 5).itemLabel(itemStack);
         }
 
-        if (entity.properties.config.allowsTank.get()) {
+        if (entity.properties.settings().allowsTank) {
             iProbeInfo.tankSimple(entity.tank.getCapacity(), entity.tank.getFluid(), iProbeInfo.defaultProgressStyle()
                     .numberFormat(NumberFormat.COMPACT)
                     .prefix(entity.tank.getFluid().getDisplayName().getString() + ": ")
@@ -127,9 +127,10 @@ public class TheOneProbeProvider implements IProbeInfoProvider, Function<ITheOne
             );
         }
 
-        int progress = (entity.processed * 100) / entity.maxProcessed;
+        int processed = entity.getProcessed();
+        int progress = (processed * 100) / entity.getMaxProcessed();
 
-        if (entity.processed != 0 || !stackInSlot.isEmpty()) {
+        if (processed != 0 || !stackInSlot.isEmpty()) {
             iProbeInfo.horizontal().item(stackInSlot).vertical().padding(0, 3).progress(progress, 100, iProbeInfo.defaultProgressStyle()
                     .suffix("%").width(78));
         }
@@ -32,6 +32,7 @@ public class SluiceModItems {
     public static final RegistryObject<BlockItem> DIAMOND_SLUICE = REGISTRY.register("diamond_sluice", () -> new BlockItem(SluiceBlocks.DIAMOND_SLUICE.get(), new Item.Properties().tab(FTBSluice.group)));
     public static final RegistryObject<BlockItem> NETHERITE_SLUICE = REGISTRY.register("netherite_sluice", () -> new BlockItem(SluiceBlocks.NETHERITE_SLUICE.get(), new Item.Properties().tab(FTBSluice.group)));
     public static final RegistryObject<BlockItem> EMPOWERED_SLUICE = REGISTRY.register("empowered_sluice", () -> new BlockItem(SluiceBlocks.EMPOWERED_SLUICE.get(), new Item.Properties().tab(FTBSluice.group)));
+    public static final RegistryObject<BlockItem> CONTROLLER_SLUICE = REGISTRY.register("controller_sluice", () -> new BlockItem(SluiceBlocks.CONTROLLER_SLUICE.get(), new Item.Properties().tab(FTBSluice.group)));
 
     public static final RegistryObject<BlockItem> PUMP = REGISTRY.register("pump", () -> new BlockItem(SluiceBlocks.PUMP.get(), new Item.Properties().tab(FTBSluice.group)));
 
@@ -5,6 +5,11 @@ public enum Upgrades {
     LUCK(3, "upgrade_fortune"),
     CONSUMPTION(5, "upgrade_fluid");
 
+    /**
+     * The most upgrades of one kind a sluice will take into account, no matter the stack size
+     */
+    public static final int MAX_COUNT = 18;
+
     public int effectedChange;
     public String tooltip;
     Upgrades(int effectedChange, String tooltip) {
@@ -30,7 +30,7 @@ public class HammerModifier extends LootModifier {
         Entity entity = context.getParamOrNull(LootContextParams.THIS_ENTITY);
         BlockState blockState = context.getParamOrNull(LootContextParams.BLOCK_STATE);
 
-        if (!(entity instanceof Player) || hammer == null || blockState == null || !SluiceTags.Items.HAMMERS.contains(hammer.getItem()) || !FTBSluiceRecipes.hammerable(blockState)) {
+        if (!(entity instanceof Player) || hammer == null || blockState == null || !SluiceTags.Items.HAMMERS.contains(hammer.getItem()) || !FTBSluiceRecipes.hammerable(entity.level, blockState)) {
             return list;
         }
 
@@ -0,0 +1,18 @@
+package dev.ftb.mods.sluice.net;
+
+import dev.ftb.mods.sluice.FTBSluice;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraftforge.fml.network.NetworkRegistry;
+import net.minecraftforge.fml.network.simple.SimpleChannel;
+
+public class SluiceNet {
+    private static final String VERSION = "1";
+
+    public static final SimpleChannel MAIN = NetworkRegistry.newSimpleChannel(new ResourceLocation(FTBSluice.MOD_ID, "main"), () -> VERSION, VERSION::equals, VERSION::equals);
+
+    public static void init() {
+        int id = 0;
+        MAIN.registerMessage(id++, SyncSluicePacket.class, SyncSluicePacket::write, SyncSluicePacket::new, SyncSluicePacket::handle);
+        MAIN.registerMessage(id++, SyncProgressPacket.class, SyncProgressPacket::write, SyncProgressPacket::new, SyncProgressPacket::handle);
+    }
+}
@@ -0,0 +1,42 @@
+package dev.ftb.mods.sluice.net;
+
+import dev.ftb.mods.sluice.SluiceClient;
+import net.minecraft.core.BlockPos;
+import net.minecraft.network.FriendlyByteBuf;
+import net.minecraftforge.api.distmarker.Dist;
+import net.minecraftforge.fml.DistExecutor;
+import net.minecraftforge.fml.network.NetworkEvent;
+
+import java.util.function.Supplier;
+
+/**
+ * Tells the client a processing cycle started or stopped. See {@link dev.ftb.mods.sluice.block.PredictedProgress}.
+ */
+public class SyncProgressPacket {
+    public final BlockPos pos;
+    public final long startTime;
+    public final int duration;
+
+    public SyncProgressPacket(BlockPos pos, long startTime, int duration) {
+        this.pos = pos;
+        this.startTime = startTime;
+        this.duration = duration;
+    }
+
+    public SyncProgressPacket(FriendlyByteBuf buf) {
+        this.pos = buf.readBlockPos();
+        this.startTime = buf.readVarLong();
+        this.duration = buf.readVarInt();
+    }
+
+    public void write(FriendlyByteBuf buf) {
+        buf.writeBlockPos(this.pos);
+        buf.writeVarLong(this.startTime);
+        buf.writeVarInt(this.duration);
+    }
+
+    public void handle(Supplier<NetworkEvent.Context> context) {
+        context.get().enqueueWork(() -> DistExecutor.unsafeRunWhenOn(Dist.CLIENT, () -> () -> SluiceClient.handleProgressSync(this)));
+        context.get().setPacketHandled(true);
+    }
+}
@@ -0,0 +1,88 @@
+package dev.ftb.mods.sluice.net;
+
+import dev.ftb.mods.sluice.SluiceClient;
+import dev.ftb.mods.sluice.block.sluice.SluiceBlockEntity;
+import net.minecraft.core.BlockPos;
+import net.minecraft.network.FriendlyByteBuf;
+import net.minecraft.world.item.ItemStack;
+import net.minecraftforge.api.distmarker.Dist;
+import net.minecraftforge.fluids.FluidStack;
+import net.minecraftforge.fml.DistExecutor;
+import net.minecraftforge.fml.network.NetworkEvent;
+
+import java.util.function.Supplier;
+
+/**
+ * Carries only the parts of a sluice the client cares about that changed since the last sync. Anything not
+ * flagged in the mask is left untouched on the client. Progress is never sent, only when the current cycle
+ * started, see {@link dev.ftb.mods.sluice.block.PredictedProgress}.
+ */
+public class SyncSluicePacket {
+    public static final int CYCLE = 1;
+    public static final int FLUID = 1 << 1;
+    public static final int FLUID_AMOUNT = 1 << 2;
+    public static final int INPUT = 1 << 3;
+    public static final int POWER_COST = 1 << 4;
+
+    public final BlockPos pos;
+    public final int mask;
+    public final long cycleStart;
+    public final int maxProcessed;
+    public final FluidStack fluid;
+    public final int fluidAmount;
+    public final ItemStack input;
+    public final int powerCost;
+
+    public SyncSluicePacket(SluiceBlockEntity sluice, int mask) {
+        this.pos = sluice.getBlockPos();
+        this.mask = mask;
+        this.cycleStart = sluice.getCycleStart();
+        this.maxProcessed = sluice.getMaxProcessed();
+        this.fluid = sluice.tank.getFluid().copy();
+        this.fluidAmount = this.fluid.getAmount();
+        this.input = sluice.inventory.getStackInSlot(0).copy();
+        this.powerCost = sluice.lastPowerCost;
+    }
+
+    public SyncSluicePacket(FriendlyByteBuf buf) {
+        this.pos = buf.readBlockPos();
+        this.mask = buf.readVarInt();
+        this.cycleStart = (this.mask & CYCLE) != 0 ? buf.readVarLong() : 0;
+        this.maxProcessed = (this.mask & CYCLE) != 0 ? buf.readVarInt() : 0;
+        this.fluid = (this.mask & FLUID) != 0 ? FluidStack.readFromPacket(buf) : FluidStack.EMPTY;
+        this.fluidAmount = (this.mask & FLUID_AMOUNT) != 0 ? buf.readVarInt() : this.fluid.getAmount();
+        this.input = (this.mask & INPUT) != 0 ? buf.readItem() : ItemStack.EMPTY;
+        this.powerCost = (this.mask & POWER_COST) != 0 ? buf.readVarInt() : 0;
+    }
+
+    public void write(FriendlyByteBuf buf) {
+        buf.writeBlockPos(this.pos);
+        buf.writeVarInt(this.mask);
+
+        if ((this.mask & CYCLE) != 0) {
+            buf.writeVarLong(this.cycleStart);
+            buf.writeVarInt(this.maxProcessed);
+        }
+
+        if ((this.mask & FLUID) != 0) {
+            this.fluid.writeToPacket(buf);
+        }
+
+        if ((this.mask & FLUID_AMOUNT) != 0) {
+            buf.writeVarInt(this.fluidAmount);
+        }
+
+        if ((this.mask & INPUT) != 0) {
+            buf.writeItem(this.input);
+        }
+
+        if ((this.mask & POWER_COST) != 0) {
+            buf.writeVarInt(this.powerCost);
+        }
+    }
+
+    public void handle(Supplier<NetworkEvent.Context> context) {
+        context.get().enqueueWork(() -> DistExecutor.unsafeRunWhenOn(Dist.CLIENT, () -> () -> SluiceClient.handleSluiceSync(this)));
+        context.get().setPacketHandled(true);
+    }
+}
@@ -2,9 +2,7 @@ package dev.ftb.mods.sluice.recipe;
 
 import dev.ftb.mods.sluice.FTBSluice;
 import dev.ftb.mods.sluice.block.MeshType;
-import net.minecraft.world.item.Item;
 import net.minecraft.world.item.ItemStack;
-import net.minecraft.world.item.crafting.Ingredient;
 import net.minecraft.world.item.crafting.RecipeManager;
 import net.minecraft.world.item.crafting.RecipeSerializer;
 import net.minecraft.world.item.crafting.RecipeType;
@@ -14,10 +12,9 @@ import net.minecraft.world.level.material.Fluid;
 import net.minecraftforge.fml.RegistryObject;
 import net.minecraftforge.registries.DeferredRegister;
 import net.minecraftforge.registries.ForgeRegistries;
-import org.apache.commons.lang3.tuple.Triple;
 
-import java.util.*;
-import java.util.stream.Collectors;
+import javax.annotation.Nullable;
+import java.util.List;
 
 
 public class FTBSluiceRecipes {
@@ -28,46 +25,42 @@ public class FTBSluiceRecipes {
 
     public static final RegistryObject<RecipeSerializer<?>> HAMMER = REGISTRY.register("hammer", HammerRecipeSerializer::new);
     public static final RecipeType<HammerRecipe> HAMMER_TYPE = RecipeType.register(FTBSluice.MOD_ID + ":hammer");
-    public static final Set<Ingredient> hammerableCache = new HashSet<>();
 
-    private static final Map<Triple<Fluid, Item, MeshType>, SluiceRecipeInfo> sluiceCache = new HashMap<>();
+    // One published snapshot per logical side, as the integrated server and the client reload on their own threads
+    private static volatile SluiceRecipeCache serverCache = SluiceRecipeCache.EMPTY;
+    private static volatile SluiceRecipeCache clientCache = SluiceRecipeCache.EMPTY;
 
-    // Ignores the fluid requirement to check for valid insert actions
-    private static final HashMap<MeshType, HashSet<Ingredient>> sluiceInputCache = new HashMap<>();
-
-    private static final Map<Item, List<ItemStack>> hammerCache = new HashMap<>();
-
-    public static void createSluiceCaches(RecipeManager recipeManager) {
-        List<SluiceRecipe> sluiceRecipes = recipeManager.getAllRecipesFor(SLUICE_TYPE);
-
-        // Mesh -> has -> Ingredients.
-        for (SluiceRecipe e : sluiceRecipes) {
-            for (MeshType a : e.meshes) {
-                sluiceInputCache.computeIfAbsent(a, (_0) -> new HashSet<>()).add(e.ingredient);
-            }
+    /**
+     * Rebuilds the caches for one logical side and publishes them in a single swap.
+     *
+     * @param manager    the recipe manager to index
+     * @param clientSide true when called from the client's recipe sync
+     */
+    public static void refreshCaches(RecipeManager manager, boolean clientSide) {
+        SluiceRecipeCache cache = SluiceRecipeCache.build(manager);
+        if (clientSide) {
+            clientCache = cache;
+        } else {
+            serverCache = cache;
         }
     }
 
-    public static void createHammerables(RecipeManager manager) {
-        hammerableCache.addAll(manager.getAllRecipesFor(HAMMER_TYPE).stream().map(e -> e.ingredient).collect(Collectors.toList()));
-    }
-
-    public static void refreshCaches(RecipeManager manager) {
-        clearCache();
-        createSluiceCaches(manager);
-        createHammerables(manager);
-    }
-
     public static void clearCache() {
-        sluiceCache.clear();
-        sluiceInputCache.clear();
+        serverCache = SluiceRecipeCache.EMPTY;
+        clientCache = SluiceRecipeCache.EMPTY;
+    }
 
-        hammerCache.clear();
-        hammerableCache.clear();
+    /**
+     * @param level the level asking, or null when it is not known yet (server side is assumed)
+     * @return the current snapshot for the level's logical side
+     */
+    public static SluiceRecipeCache getCache(@Nullable Level level) {
+        return level != null && level.isClientSide() ? clientCache : serverCache;
     }
 
     /**
-     * Runs through all sluice recipes to find matching mesh -> resulting items.
+     * Looks up the merged results of every sluice recipe matching the mesh, fluid and input. The lookup
+     * is served entirely from the index built in {@link #refreshCaches(RecipeManager, boolean)}.
      *
      * @param world level
      * @param mesh  the type of mesh for the sluice
@@ -75,33 +68,7 @@ public class FTBSluiceRecipes {
      * @return A list of items with the chances.
      */
     public static SluiceRecipeInfo getSluiceRecipes(Fluid fluid, Level world, MeshType mesh, ItemStack input) {
-        return sluiceCache.computeIfAbsent(Triple.of(fluid, input.getItem(), mesh), key -> {
-            List<ItemWithWeight> list = new ArrayList<>();
-
-            int max = -1;
-            int time = -1;
-            int mb = -1;
-            for (SluiceRecipe recipe : world.getRecipeManager().getRecipesFor(SLUICE_TYPE, NoInventory.INSTANCE, world)) {
-                if (recipe.meshes.contains(mesh) && recipe.ingredient.test(input) && fluid.isSame(recipe.fluid)) {
-                    // Only set based on the first min max we see.
-                    if (max == -1) {
-                        max = recipe.max;
-                    }
-
-                    if (time == -1) {
-                        time = recipe.time;
-                    }
-
-                    if (mb == -1) {
-                        mb = recipe.mb;
-                    }
-
-                    recipe.results.forEach(e -> list.add(new ItemWithWeight(e.item, e.weight)));
-                }
-            }
-
-            return new SluiceRecipeInfo(list, max, time, mb);
-        });
+        return getCache(world).getSluiceRecipes(fluid, mesh, input.getItem());
     }
 
     /**
@@ -111,35 +78,19 @@ public class FTBSluiceRecipes {
         return !getSluiceRecipes(fluid, level, mesh, input).getItems().isEmpty();
     }
 
-    public static boolean itemIsSluiceInput(MeshType mesh, ItemStack input) {
-        if (!sluiceInputCache.containsKey(mesh)) {
-            return false;
-        }
-
-        return sluiceInputCache.get(mesh).stream().anyMatch(e -> e.test(input));
+    public static boolean itemIsSluiceInput(@Nullable Level level, MeshType mesh, ItemStack input) {
+        return getCache(level).isSluiceInput(mesh, input);
     }
 
     public static List<ItemStack> getHammerDrops(Level level, ItemStack input) {
-        return hammerCache.computeIfAbsent(input.getItem(), key -> {
-            List<ItemStack> drops = new ArrayList<>();
-            for (HammerRecipe recipe : level.getRecipeManager().getRecipesFor(HAMMER_TYPE, NoInventory.INSTANCE, level)) {
-                if (recipe.ingredient.test(input)) {
-                    recipe.results.forEach(e -> drops.add(e.copy()));
-                }
-            }
-
-            return drops;
-        });
+        return getCache(level).getHammerDrops(input.getItem());
     }
 
-    public static boolean hammerable(BlockState state) {
-        return hammerableCache.stream().anyMatch(e -> {
-            ItemStack stack = new ItemStack(state.getBlock());
-            return e.test(stack);
-        });
+    public static boolean hammerable(@Nullable Level level, BlockState state) {
+        return getCache(level).isHammerable(state.getBlock());
     }
 
-    public static boolean hammerable(ItemStack stack) {
-        return hammerableCache.stream().anyMatch(e -> e.test(stack));
+    public static boolean hammerable(@Nullable Level level, ItemStack stack) {
+        return getCache(level).isHammerable(stack);
     }
 }
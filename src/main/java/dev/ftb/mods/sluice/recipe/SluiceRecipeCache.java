@@ -0,0 +1,220 @@
+package dev.ftb.mods.sluice.recipe;
+
+import dev.ftb.mods.sluice.block.MeshType;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.objects.ReferenceOpenHashSet;
+import net.minecraft.core.Registry;
+import net.minecraft.world.item.Item;
+import net.minecraft.world.item.ItemStack;
+import net.minecraft.world.item.Items;
+import net.minecraft.world.item.crafting.Ingredient;
+import net.minecraft.world.item.crafting.RecipeManager;
+import net.minecraft.world.level.block.Block;
+import net.minecraft.world.level.material.FlowingFluid;
+import net.minecraft.world.level.material.Fluid;
+
+import java.util.*;
+
+/**
+ * An immutable view of every sluice and hammer lookup for one recipe manager. A new instance is built off to
+ * the side on every reload and then published in a single reference swap, so readers never see a half built
+ * cache and never have to lock.
+ */
+public final class SluiceRecipeCache {
+    public static final SluiceRecipeCache EMPTY = new SluiceRecipeCache();
+
+    // Packed (fluid, item, mesh) key -> merged results. See key.
+    private final Long2ObjectOpenHashMap<SluiceRecipeInfo> sluiceRecipes;
+
+    // Item id -> bitmask of mesh ordinals it is an input for. Ignores the fluid requirement to check for valid insert actions
+    private final byte[] sluiceInputMeshes;
+
+    // Ingredients that can't be reduced to a set of items (NBT, damage) still need a real test
+    private final Map<MeshType, List<Ingredient>> complexSluiceInputs;
+
+    // Items (and so blocks) any hammer recipe accepts, plus the ingredients that have to be tested for real
+    private final Set<Item> hammerables;
+    private final List<Ingredient> complexHammerables;
+    private final Map<Item, List<ItemStack>> hammerDrops;
+
+    private SluiceRecipeCache() {
+        this.sluiceRecipes = new Long2ObjectOpenHashMap<>();
+        this.sluiceInputMeshes = new byte[0];
+        this.complexSluiceInputs = Collections.emptyMap();
+        this.hammerables = Collections.emptySet();
+        this.complexHammerables = Collections.emptyList();
+        this.hammerDrops = Collections.emptyMap();
+    }
+
+    private SluiceRecipeCache(RecipeManager manager) {
+        List<SluiceRecipe> sluiceRecipes = manager.getAllRecipesFor(FTBSluiceRecipes.SLUICE_TYPE);
+
+        // Item -> Meshes it can go through. Complex ingredients are kept per mesh instead.
+        byte[] inputMeshes = new byte[Registry.ITEM.keySet().size() + 1];
+        Map<MeshType, List<Ingredient>> complexInputs = new EnumMap<>(MeshType.class);
+        for (SluiceRecipe e : sluiceRecipes) {
+            if (!e.ingredient.isSimple()) {
+                for (MeshType a : e.meshes) {
+                    List<Ingredient> list = complexInputs.computeIfAbsent(a, (_0) -> new ArrayList<>());
+                    if (!list.contains(e.ingredient)) {
+                        list.add(e.ingredient);
+                    }
+                }
+
+                continue;
+            }
+
+            int mask = 0;
+            for (MeshType a : e.meshes) {
+                mask |= 1 << a.ordinal();
+            }
+
+            for (Item item : itemsOf(e.ingredient)) {
+                int id = Registry.ITEM.getId(item);
+                if (id >= inputMeshes.length) {
+                    inputMeshes = Arrays.copyOf(inputMeshes, id + 1);
+                }
+
+                inputMeshes[id] |= (byte) mask;
+            }
+        }
+
+        this.sluiceInputMeshes = inputMeshes;
+        this.complexSluiceInputs = complexInputs;
+
+        // (Fluid, Item, Mesh) -> Info. Recipes are visited in manager order so the first recipe to match
+        // a key still decides the max drops, time and fluid usage like the old lazy lookup did.
+        Long2ObjectOpenHashMap<SluiceRecipeInfo.Builder> builders = new Long2ObjectOpenHashMap<>();
+        for (SluiceRecipe recipe : sluiceRecipes) {
+            for (MeshType mesh : recipe.meshes) {
+                for (Item item : itemsOf(recipe.ingredient)) {
+                    long key = key(recipe.fluid, item, mesh);
+                    SluiceRecipeInfo.Builder builder = builders.get(key);
+                    if (builder == null) {
+                        builder = new SluiceRecipeInfo.Builder();
+                        builders.put(key, builder);
+                    }
+
+                    builder.add(recipe);
+                }
+            }
+        }
+
+        this.sluiceRecipes = new Long2ObjectOpenHashMap<>(builders.size());
+        for (Long2ObjectMap.Entry<SluiceRecipeInfo.Builder> entry : builders.long2ObjectEntrySet()) {
+            this.sluiceRecipes.put(entry.getLongKey(), entry.getValue().build());
+        }
+
+        List<HammerRecipe> hammerRecipes = manager.getAllRecipesFor(FTBSluiceRecipes.HAMMER_TYPE);
+
+        Set<Item> hammerables = new ReferenceOpenHashSet<>();
+        List<Ingredient> complexHammerables = new ArrayList<>();
+        Map<Item, List<ItemStack>> drops = new HashMap<>();
+        for (HammerRecipe recipe : hammerRecipes) {
+            Set<Item> items = itemsOf(recipe.ingredient);
+            if (recipe.ingredient.isSimple()) {
+                hammerables.addAll(items);
+            } else if (!complexHammerables.contains(recipe.ingredient)) {
+                complexHammerables.add(recipe.ingredient);
+            }
+
+            for (Item item : items) {
+                List<ItemStack> list = drops.computeIfAbsent(item, (_0) -> new ArrayList<>());
+                recipe.results.forEach(e -> list.add(e.copy()));
+            }
+        }
+
+        drops.replaceAll((item, list) -> Collections.unmodifiableList(list));
+
+        this.hammerables = hammerables;
+        this.complexHammerables = complexHammerables;
+        this.hammerDrops = drops;
+    }
+
+    public static SluiceRecipeCache build(RecipeManager manager) {
+        return new SluiceRecipeCache(manager);
+    }
+
+    public SluiceRecipeInfo getSluiceRecipes(Fluid fluid, MeshType mesh, Item input) {
+        SluiceRecipeInfo info = this.sluiceRecipes.get(key(fluid, input, mesh));
+        return info == null ? SluiceRecipeInfo.EMPTY : info;
+    }
+
+    public boolean isSluiceInput(MeshType mesh, ItemStack input) {
+        int id = Registry.ITEM.getId(input.getItem());
+        if (id >= 0 && id < this.sluiceInputMeshes.length && (this.sluiceInputMeshes[id] & (1 << mesh.ordinal())) != 0) {
+            return true;
+        }
+
+        List<Ingredient> ingredients = this.complexSluiceInputs.get(mesh);
+        if (ingredients == null) {
+            return false;
+        }
+
+        for (Ingredient ingredient : ingredients) {
+            if (ingredient.test(input)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    public boolean isHammerable(ItemStack stack) {
+        if (this.hammerables.contains(stack.getItem())) {
+            return true;
+        }
+
+        for (Ingredient ingredient : this.complexHammerables) {
+            if (ingredient.test(stack)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Same as {@link #isHammerable(ItemStack)} for the block's item, but only builds a stack when a complex
+     * ingredient has to be tested.
+     */
+    public boolean isHammerable(Block block) {
+        Item item = block.asItem();
+        if (item == Items.AIR) {
+            return false;
+        }
+
+        if (this.hammerables.contains(item)) {
+            return true;
+        }
+
+        return !this.complexHammerables.isEmpty() && this.isHammerable(new ItemStack(item));
+    }
+
+    public List<ItemStack> getHammerDrops(Item input) {
+        return this.hammerDrops.getOrDefault(input, Collections.emptyList());
+    }
+
+    private static Set<Item> itemsOf(Ingredient ingredient) {
+        Set<Item> items = new LinkedHashSet<>();
+        for (ItemStack stack : ingredient.getItems()) {
+            if (!stack.isEmpty()) {
+                items.add(stack.getItem());
+            }
+        }
+
+        return items;
+    }
+
+    /**
+     * Packs a lookup into a single long: 24 bits of fluid id, 32 bits of item id and 8 bits of mesh ordinal.
+     * Recipes match fluids with {@link Fluid#isSame(Fluid)}, so flowing variants are folded into their source.
+     */
+    private static long key(Fluid fluid, Item item, MeshType mesh) {
+        Fluid source = fluid instanceof FlowingFluid ? ((FlowingFluid) fluid).getSource() : fluid;
+        return ((long) (Registry.FLUID.getId(source) & 0xFFFFFF) << 40)
+                | ((Registry.ITEM.getId(item) & 0xFFFFFFFFL) << 8)
+                | (mesh.ordinal() & 0xFF);
+    }
+}
@@ -1,18 +1,139 @@
 package dev.ftb.mods.sluice.recipe;
 
+import dev.ftb.mods.sluice.item.Upgrades;
+import dev.ftb.mods.sluice.util.RandomUtil;
+import net.minecraft.util.Mth;
+import net.minecraft.world.item.ItemStack;
+
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Random;
 
 public class SluiceRecipeInfo {
+    public static final SluiceRecipeInfo EMPTY = new SluiceRecipeInfo(Collections.emptyList(), -1, -1, -1);
+
     private final List<ItemWithWeight> items;
     private final int maxDrops;
     private final int processingTime;
     private final int fluidUsed;
 
+    // Luck upgrade count -> item index -> chance of that item dropping
+    private final double[][] chances;
+
     public SluiceRecipeInfo(List<ItemWithWeight> items, int maxDrops, int processingTime, int fluidUsed) {
-        this.items = items;
+        this.items = Collections.unmodifiableList(new ArrayList<>(items));
         this.maxDrops = maxDrops;
         this.processingTime = processingTime;
         this.fluidUsed = fluidUsed;
+
+        this.chances = new double[Upgrades.MAX_COUNT + 1][this.items.size()];
+        for (int luck = 0; luck <= Upgrades.MAX_COUNT; luck++) {
+            double additional = Upgrades.LUCK.effectedChange * luck / 100D;
+            for (int i = 0; i < this.items.size(); i++) {
+                this.chances[luck][i] = Mth.clamp(this.items.get(i).weight + additional, 0, 1);
+            }
+        }
+    }
+
+    /**
+     * Rolls every item once against its luck adjusted chance and adds copies of the winners to the output.
+     * When more than {@link #getMaxDrops()} items win, a uniformly random subset of them is kept, which is the
+     * same outcome as shuffling the items and keeping the first winners.
+     *
+     * @param random       the level's random
+     * @param luckUpgrades how many luck upgrades the sluice has
+     * @param output       the list to add the resulting stacks to
+     */
+    public void roll(Random random, int luckUpgrades, List<ItemStack> output) {
+        double[] chance = this.chances[Mth.clamp(luckUpgrades, 0, Upgrades.MAX_COUNT)];
+        int start = output.size();
+        int won = 0;
+
+        // The winners go straight into the output as the shared stacks and are only copied once they're final
+        for (int i = 0; i < chance.length; i++) {
+            if (random.nextFloat() > chance[i]) {
+                continue;
+            }
+
+            won++;
+            if (won <= this.maxDrops) {
+                output.add(this.items.get(i).item);
+            } else {
+                // Reservoir sampling keeps every winner equally likely to make the cut
+                int slot = random.nextInt(won);
+                if (slot < this.maxDrops) {
+                    output.set(start + slot, this.items.get(i).item);
+                }
+            }
+        }
+
+        for (int i = start; i < output.size(); i++) {
+            output.set(i, output.get(i).copy());
+        }
+    }
+
+    /**
+     * Rolls many operations at once. When there are no more items than the max drops the cap can never bite,
+     * so each item's count is a single binomial draw. Otherwise whether an item is kept depends on how many
+     * others won in the same roll, so every roll is run against one scratch buffer.
+     *
+     * @param random       the level's random
+     * @param luckUpgrades how many luck upgrades the sluice has
+     * @param operations   how many single rolls this stands in for
+     * @return the total count of each item, in the same order as {@link #getItems()}
+     */
+    public long[] rollBulk(Random random, int luckUpgrades, long operations) {
+        double[] chance = this.chances[Mth.clamp(luckUpgrades, 0, Upgrades.MAX_COUNT)];
+        long[] counts = new long[chance.length];
+        if (operations <= 0 || this.maxDrops <= 0) {
+            return counts;
+        }
+
+        if (chance.length <= this.maxDrops) {
+            for (int i = 0; i < chance.length; i++) {
+                counts[i] = RandomUtil.binomial(random, operations, chance[i]);
+            }
+
+            return counts;
+        }
+
+        int[] kept = new int[this.maxDrops];
+        for (long op = 0; op < operations; op++) {
+            int count = this.rollIndices(random, chance, kept);
+            for (int i = 0; i < count; i++) {
+                counts[kept[i]]++;
+            }
+        }
+
+        return counts;
+    }
+
+    /**
+     * Runs a single roll, writing the indices of the kept items into {@code kept}.
+     *
+     * @return how many items were kept
+     */
+    private int rollIndices(Random random, double[] chance, int[] kept) {
+        int won = 0;
+        for (int i = 0; i < chance.length; i++) {
+            if (random.nextFloat() > chance[i]) {
+                continue;
+            }
+
+            won++;
+            if (won <= kept.length) {
+                kept[won - 1] = i;
+            } else {
+                // Reservoir sampling keeps every winner equally likely to make the cut
+                int slot = random.nextInt(won);
+                if (slot < kept.length) {
+                    kept[slot] = i;
+                }
+            }
+        }
+
+        return Math.min(won, kept.length);
     }
 
     public List<ItemWithWeight> getItems() {
@@ -30,4 +151,35 @@ public class SluiceRecipeInfo {
     public int getFluidUsed() {
         return this.fluidUsed;
     }
+
+    /**
+     * Merges every recipe that shares a mesh, fluid and input. Only the first recipe added decides
+     * the max drops, processing time and fluid usage.
+     */
+    static class Builder {
+        private final List<ItemWithWeight> items = new ArrayList<>();
+        private int maxDrops = -1;
+        private int processingTime = -1;
+        private int fluidUsed = -1;
+
+        void add(SluiceRecipe recipe) {
+            if (this.maxDrops == -1) {
+                this.maxDrops = recipe.max;
+            }
+
+            if (this.processingTime == -1) {
+                this.processingTime = recipe.time;
+            }
+
+            if (this.fluidUsed == -1) {
+                this.fluidUsed = recipe.mb;
+            }
+
+            this.items.addAll(recipe.results);
+        }
+
+        SluiceRecipeInfo build() {
+            return new SluiceRecipeInfo(this.items, this.maxDrops, this.processingTime, this.fluidUsed);
+        }
+    }
 }
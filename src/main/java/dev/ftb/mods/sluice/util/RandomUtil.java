@@ -0,0 +1,48 @@
+package dev.ftb.mods.sluice.util;
+
+import java.util.Random;
+
+public class RandomUtil {
+
+    /**
+     * Draws from a binomial distribution without running every trial. Small means count successes by jumping
+     * geometrically distributed gaps, larger ones use the normal approximation, so the cost stays flat no
+     * matter how many trials there are.
+     *
+     * @param random the random to draw from
+     * @param trials how many trials to run
+     * @param chance the chance of a single trial succeeding
+     * @return how many trials succeeded
+     */
+    public static long binomial(Random random, long trials, double chance) {
+        if (trials <= 0 || chance <= 0) {
+            return 0;
+        }
+
+        if (chance >= 1) {
+            return trials;
+        }
+
+        if (chance > 0.5D) {
+            return trials - binomial(random, trials, 1D - chance);
+        }
+
+        double mean = trials * chance;
+        if (mean < 30D) {
+            double logMiss = Math.log1p(-chance);
+            long successes = 0;
+            long position = 0;
+            while (true) {
+                position += (long) Math.floor(Math.log(1D - random.nextDouble()) / logMiss) + 1;
+                if (position > trials) {
+                    return successes;
+                }
+
+                successes++;
+            }
+        }
+
+        long drawn = Math.round(mean + Math.sqrt(mean * (1D - chance)) * random.nextGaussian());
+        return Math.max(0, Math.min(trials, drawn));
+    }
+}
@@ -15,6 +15,6 @@ public class RecipeReloader implements ResourceManagerReloadListener {
 
     @Override
     public void onResourceManagerReload(ResourceManager rm) {
-        FTBSluiceRecipes.refreshCaches(res.getRecipeManager());
+        FTBSluiceRecipes.refreshCaches(res.getRecipeManager(), false);
     }
 }
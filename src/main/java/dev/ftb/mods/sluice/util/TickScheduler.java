@@ -0,0 +1,118 @@
+package dev.ftb.mods.sluice.util;
+
+import it.unimi.dsi.fastutil.objects.ReferenceOpenHashSet;
+import net.minecraft.world.level.Level;
+import net.minecraft.world.level.block.entity.BlockEntity;
+
+import java.util.Comparator;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+/**
+ * Takes idle block entities out of the level's ticking list and puts them back when something wakes them. The
+ * level is iterating that list while block entities tick, so sleeps and wakes are queued and only applied at the
+ * end of the level tick, see {@link #tick(Level)}.
+ */
+public class TickScheduler {
+    private static final Map<Level, TickScheduler> SCHEDULERS = new WeakHashMap<>();
+
+    private final Level level;
+    private final Set<BlockEntity> sleeping = new ReferenceOpenHashSet<>();
+    private final Set<BlockEntity> pendingSleep = new ReferenceOpenHashSet<>();
+    private final Set<BlockEntity> pendingWake = new ReferenceOpenHashSet<>();
+    private final PriorityQueue<TimedWake> timedWakes = new PriorityQueue<>(Comparator.comparingLong(e -> e.time));
+
+    private TickScheduler(Level level) {
+        this.level = level;
+    }
+
+    public static TickScheduler get(Level level) {
+        return SCHEDULERS.computeIfAbsent(level, TickScheduler::new);
+    }
+
+    public static void tick(Level level) {
+        TickScheduler scheduler = SCHEDULERS.get(level);
+        if (scheduler != null) {
+            scheduler.flush();
+        }
+    }
+
+    public static void unload(Level level) {
+        SCHEDULERS.remove(level);
+    }
+
+    /**
+     * Stops the block entity from ticking from the end of this tick until it is woken again.
+     */
+    public void sleep(BlockEntity blockEntity) {
+        this.pendingWake.remove(blockEntity);
+        this.pendingSleep.add(blockEntity);
+    }
+
+    /**
+     * Puts a sleeping block entity back into the ticking list. Does nothing if it is already ticking.
+     */
+    public void wake(BlockEntity blockEntity) {
+        // Still in the ticking list, it just won't be taken out anymore
+        if (this.pendingSleep.remove(blockEntity)) {
+            return;
+        }
+
+        if (this.sleeping.contains(blockEntity)) {
+            this.pendingWake.add(blockEntity);
+        }
+    }
+
+    /**
+     * Wakes the block entity once the game time reaches the given time. Does nothing if it isn't asleep by
+     * then, so a timed wake that something else beat to it is harmless.
+     */
+    public void wakeAt(BlockEntity blockEntity, long time) {
+        this.timedWakes.add(new TimedWake(blockEntity, time));
+    }
+
+    /**
+     * Drops every reference to the block entity, for when it is removed or its chunk unloads.
+     */
+    public void forget(BlockEntity blockEntity) {
+        this.sleeping.remove(blockEntity);
+        this.pendingSleep.remove(blockEntity);
+        this.pendingWake.remove(blockEntity);
+    }
+
+    private void flush() {
+        long time = this.level.getGameTime();
+        while (!this.timedWakes.isEmpty() && this.timedWakes.peek().time <= time) {
+            this.wake(this.timedWakes.poll().blockEntity);
+        }
+
+        if (!this.pendingSleep.isEmpty()) {
+            // A single pass over the ticking list no matter how many are going to sleep
+            this.level.tickableBlockEntities.removeAll(this.pendingSleep);
+            this.sleeping.addAll(this.pendingSleep);
+            this.pendingSleep.clear();
+        }
+
+        if (!this.pendingWake.isEmpty()) {
+            for (BlockEntity blockEntity : this.pendingWake) {
+                if (this.sleeping.remove(blockEntity) && !blockEntity.isRemoved()) {
+                    this.level.tickableBlockEntities.add(blockEntity);
+                }
+            }
+
+            this.pendingWake.clear();
+        }
+    }
+
+    private static final class TimedWake {
+        private final BlockEntity blockEntity;
+        private final long time;
+
+        private TimedWake(BlockEntity blockEntity, long time) {
+            this.blockEntity = blockEntity;
+            this.time = time;
+        }
+    }
+}